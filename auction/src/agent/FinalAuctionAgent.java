@@ -11,15 +11,27 @@ import logist.task.Task;
 import logist.task.TaskDistribution;
 import logist.task.TaskSet;
 import logist.topology.Topology;
+import models.CentralizedPlan;
+import models.TopologyCache;
 import print.PrintHandler;
 import random.RandomHandler;
+import time.Deadline;
+import time.TimeBudget;
 
 import java.util.Arrays;
 import java.util.List;
 
 public class FinalAuctionAgent implements AuctionBehavior {
 
-    private long planTimeout;
+    private static final long INITIAL_MARGIN = (long) 0.5e3; // we stop half a second before until we know better
+    private static final long MIN_MARGIN = 100;
+    // the bids never stop the background planner nor convert the plans of every vehicle, plan() does both once
+    private static final long MIN_PLAN_MARGIN = 3 * MIN_MARGIN;
+    private static final double CONVERSION_MS_PER_TASK = 0.1; // generous estimate of toLogistPlans, measured by planBudget
+
+    private TimeBudget bidBudget;
+    private TimeBudget planBudget;
+    private long timeForAdvPlanner;
 
     private Bidder bidder;
 
@@ -29,6 +41,8 @@ public class FinalAuctionAgent implements AuctionBehavior {
         PrintHandler.setVerbosityLevel(agent.readProperty("verbosity", Integer.class, 2));
         PrintHandler.println("[START] we are agent <" + agent.id() + ">", 1);
 
+        TopologyCache.init(topology, distribution);
+
         BidderParameters parameters = new BidderParameters();
 
         LogistSettings ls = null;
@@ -48,14 +62,12 @@ public class FinalAuctionAgent implements AuctionBehavior {
                 parameters.marginalWeight
         );
 
-        final long PLAN_TIME_MARGIN = (long) 0.5e3; // we stop half a second before just to be sure!
-
-        long timeForAdvPlanner = 0;
-        if (parameters.useImportanceStrategy && taskImpEst.mustComputeMarginalDif()) {
+        timeForAdvPlanner = 0;
+        if (parameters.useImportanceStrategy && taskImpEst.mustComputeMarginalDif() && !parameters.parallelAdvPlanner) {
             timeForAdvPlanner = parameters.timeForAdvPlanner;
         }
-        long bidTimeout = ls.get(LogistSettings.TimeoutKey.BID) - PLAN_TIME_MARGIN - timeForAdvPlanner;
-        planTimeout = ls.get(LogistSettings.TimeoutKey.PLAN) - 2 * PLAN_TIME_MARGIN;
+        bidBudget = new TimeBudget("bid", ls.get(LogistSettings.TimeoutKey.BID), INITIAL_MARGIN, MIN_MARGIN);
+        planBudget = new TimeBudget("plan", ls.get(LogistSettings.TimeoutKey.PLAN), 2 * INITIAL_MARGIN, MIN_PLAN_MARGIN);
 
         long seed = -901955466948998391L * agent.vehicles().get(0).hashCode() * agent.id();
         RandomHandler.set(seed);
@@ -64,7 +76,7 @@ public class FinalAuctionAgent implements AuctionBehavior {
                 agent,
                 topology,
                 distribution,
-                bidTimeout,
+                bidBudget.available() - timeForAdvPlanner,
                 taskImpEst,
                 1.0,
                 parameters
@@ -73,7 +85,9 @@ public class FinalAuctionAgent implements AuctionBehavior {
 
     @Override
     public Long askPrice(Task task) {
-        Long bid = this.bidder.bid(task);
+        bidBudget.start();
+        Long bid = this.bidder.bid(task, bidBudget.deadline(timeForAdvPlanner));
+        bidBudget.end();
         PrintHandler.println("[AGT] bid = <" + bid + ">, task = <" + task + ">", 2);
         return bid;
     }
@@ -86,7 +100,16 @@ public class FinalAuctionAgent implements AuctionBehavior {
 
     @Override
     public List<Plan> plan(List<Vehicle> vehicles, TaskSet tasks) {
+        planBudget.start();
         Planner planner = this.bidder.getOurPlanner();
-        return planner.findBestPlan(planTimeout).toLogistPlans(tasks);
+
+        // the plan is given once per game: keep the overheads learned on the bids, on top of the plan margin floor
+        planBudget.learnFrom(bidBudget);
+        Deadline deadline = planBudget.deadline((long) Math.ceil(CONVERSION_MS_PER_TASK * tasks.size()));
+        CentralizedPlan bestPlan = planner.findBestPlan(deadline);
+        planBudget.searchDone();
+        List<Plan> plans = bestPlan.toLogistPlans(tasks);
+        planBudget.end();
+        return plans;
     }
 }
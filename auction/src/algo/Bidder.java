@@ -6,6 +6,7 @@ import logist.task.TaskDistribution;
 import logist.topology.Topology;
 import print.PrintHandler;
 import random.RandomHandler;
+import time.Deadline;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,9 +22,9 @@ public abstract class Bidder {
 
 
     /**
-     * Make a bid for the given task
+     * Make a bid for the given task, before the deadline
      */
-    public abstract Long bid(Task task);
+    public abstract Long bid(Task task, Deadline deadline);
 
     /**
      * Improve Bidder by getting information of previous auction results
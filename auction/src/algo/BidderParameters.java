@@ -15,7 +15,8 @@ public class BidderParameters {
     public final int maxDiscount;
     public final boolean useImportanceStrategy;
     public final double importanceLR;
-    public final long timeForAdvPlanner;
+    public final long timeForAdvPlanner; // only used when the adversary planner does not run in parallel
+    public final boolean parallelAdvPlanner;
     public final double posWeight;
     public final double probWeight;
     public final double weightWeight;
@@ -24,6 +25,11 @@ public class BidderParameters {
     public final int numOfAdvLatestBids;
     public final int numOfOurLatestBids;
     public final int difWithLatestBids;
+    public final int slsWorkers;
+    public final boolean useBackgroundPlanner;
+    public final boolean useInsertionFastPath;
+    public final long minTimeForSLS;
+    public final int numSpeculativeTasks;
 
 
     public BidderParameters(Agent agent) {
@@ -51,6 +57,8 @@ public class BidderParameters {
                 agent.readProperty("importanceLR", Double.class, 0.2);
         timeForAdvPlanner =
                 agent.readProperty("timeForAdvPlanner", Integer.class, 500);
+        parallelAdvPlanner =
+                agent.readProperty("parallelAdvPlanner", Boolean.class, true);
         final double numOfWeights = 4;
         posWeight =
                 agent.readProperty("posWeight", Double.class, 1. / numOfWeights);
@@ -68,6 +76,16 @@ public class BidderParameters {
                 agent.readProperty("numOfOurLatestBids", Integer.class, 5);
         difWithLatestBids =
                 agent.readProperty("difWithLatestBids", Integer.class, 2);
+        slsWorkers =
+                agent.readProperty("slsWorkers", Integer.class, 1);
+        useBackgroundPlanner =
+                agent.readProperty("useBackgroundPlanner", Boolean.class, true);
+        useInsertionFastPath =
+                agent.readProperty("useInsertionFastPath", Boolean.class, true);
+        minTimeForSLS =
+                agent.readProperty("minTimeForSLS", Integer.class, 200);
+        numSpeculativeTasks =
+                agent.readProperty("numSpeculativeTasks", Integer.class, 5);
 
         PrintHandler.println(
                 "(" + inLearningRate + ", " +
@@ -80,6 +98,7 @@ public class BidderParameters {
                         useImportanceStrategy + ", " +
                         importanceLR + ", " +
                         timeForAdvPlanner + ", " +
+                        parallelAdvPlanner + ", " +
                         posWeight + ", " +
                         probWeight + ", " +
                         weightWeight + ", " +
@@ -87,7 +106,12 @@ public class BidderParameters {
                         useMinOfAdvBidsStrategy + ", " +
                         numOfAdvLatestBids + ", " +
                         numOfOurLatestBids + ", " +
-                        difWithLatestBids + ")");
+                        difWithLatestBids + ", " +
+                        slsWorkers + ", " +
+                        useBackgroundPlanner + ", " +
+                        useInsertionFastPath + ", " +
+                        minTimeForSLS + ", " +
+                        numSpeculativeTasks + ")");
     }
 
     public BidderParameters() {
@@ -103,6 +127,7 @@ public class BidderParameters {
         useImportanceStrategy = true;
         importanceLR = 0.2;
         timeForAdvPlanner = 500;
+        parallelAdvPlanner = true;
         final double numOfWeights = 4;
         posWeight = 0.35;
         probWeight = 0.35;
@@ -112,6 +137,11 @@ public class BidderParameters {
         numOfAdvLatestBids = 5;
         numOfOurLatestBids = 1;
         difWithLatestBids = 2;
+        slsWorkers = 1;
+        useBackgroundPlanner = true;
+        useInsertionFastPath = true;
+        minTimeForSLS = 200;
+        numSpeculativeTasks = 5;
 
         PrintHandler.println(
                 "(" + inLearningRate + ", " +
@@ -124,6 +154,7 @@ public class BidderParameters {
                         useImportanceStrategy + ", " +
                         importanceLR + ", " +
                         timeForAdvPlanner + ", " +
+                        parallelAdvPlanner + ", " +
                         posWeight + ", " +
                         probWeight + ", " +
                         weightWeight + ", " +
@@ -131,6 +162,11 @@ public class BidderParameters {
                         useMinOfAdvBidsStrategy + ", " +
                         numOfAdvLatestBids + ", " +
                         numOfOurLatestBids + ", " +
-                        difWithLatestBids + ")");
+                        difWithLatestBids + ", " +
+                        slsWorkers + ", " +
+                        useBackgroundPlanner + ", " +
+                        useInsertionFastPath + ", " +
+                        minTimeForSLS + ", " +
+                        numSpeculativeTasks + ")");
     }
 }
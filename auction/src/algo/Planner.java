@@ -8,45 +8,347 @@ import models.AddStrategy;
 import models.CentralizedPlan;
 import models.PlanGenerator;
 import models.SLS;
+import models.TopologyCache;
+import models.VehiclePlan;
 import print.PrintHandler;
+import random.RandomHandler;
+import time.Deadline;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class Planner {
+    private static final long BACKGROUND_SLICE = 100; // ms of SLS between two looks at whether we are paused
 
-    private CentralizedPlan bestPlan;
-    private Optional<CentralizedPlan> planIfBetIsWon;
+    private final int slsWorkers;
+    private final int estimateWorkers; // fewer than slsWorkers when another estimate runs at the same time
+    private final ForkJoinPool pool; // our own, so that another planner cannot delay our workers
+    private final SplittableRandom random;
+    private final SplittableRandom backgroundRandom;
+    private final Object backgroundLock = new Object();
+    private volatile CentralizedPlan bestPlan;
+    private Optional<CentralizedPlan> planIfBetIsWon; // guarded by backgroundLock, an estimate may run on another thread
+    private int estimates = 0; // estimates started or discarded, only the latest one may publish its plan
+    private Thread backgroundThread;
+    private boolean backgroundRunning;
+    private Deadline backgroundSlice; // deadline of the slice being run, null between two slices
 
-    public Planner(List<Vehicle> vehicles) {
+    // speculative plans: best plan plus one of the most probable next tasks, optimized in the background
+    private final Map<Integer, SpeculativePlan> speculativePlans = new ConcurrentHashMap<>();
+    private List<Task> likelyTasks = new ArrayList<>();
+    private long speculationTime;
+    private int generation = 0; // incremented whenever the tasks of the best plan change
+
+    public Planner(List<Vehicle> vehicles, int slsWorkers) {
+        this(vehicles, slsWorkers, slsWorkers);
+    }
+
+    /**
+     * @param slsWorkers      SLS workers to find the final plan
+     * @param estimateWorkers SLS workers to estimate a marginal cost, at most slsWorkers
+     */
+    public Planner(List<Vehicle> vehicles, int slsWorkers, int estimateWorkers) {
+        this.slsWorkers = slsWorkers;
+        this.estimateWorkers = Math.min(estimateWorkers, slsWorkers);
+        this.pool = slsWorkers > 1 ? new ForkJoinPool(slsWorkers) : null;
+        this.random = RandomHandler.split();
+        this.backgroundRandom = RandomHandler.split();
         this.bestPlan = new CentralizedPlan(vehicles, new HashMap<>(), new ArrayList<>());
         this.planIfBetIsWon = Optional.empty();
+        this.backgroundRunning = false;
+    }
+
+    private static class SpeculativePlan {
+        private final Task task; // stands for the real task, until it is auctioned
+        private final CentralizedPlan plan;
+        private final int generation;
+        private final long timeSpent;
+
+        private SpeculativePlan(Task task, CentralizedPlan plan, int generation, long timeSpent) {
+            this.task = task;
+            this.plan = plan;
+            this.generation = generation;
+            this.timeSpent = timeSpent;
+        }
+    }
+
+    private static int cityPair(Task task) {
+        return TopologyCache.get().pair(task);
+    }
+
+    /**
+     * Let the background thread also plan ahead for the numTasks most probable next tasks, each for at most
+     * timeLimit ms, so that estimateMarginalCost can start from these plans when such a task is auctioned
+     */
+    public void speculateOn(int numTasks, long timeLimit) {
+        TopologyCache cache = TopologyCache.get();
+        List<Task> tasks = new ArrayList<>();
+        for (int pair : cache.likelyPairs(numTasks)) {
+            tasks.add(new Task(0, cache.pickupCity(pair), cache.deliveryCity(pair), 0, cache.weight(pair)));
+        }
+        synchronized (backgroundLock) {
+            this.likelyTasks = tasks;
+            this.speculationTime = timeLimit;
+        }
+    }
+
+    /**
+     * Keep improving the best plan in a daemon thread until the next pause, so that the time between auctions is
+     * not wasted (the thread is started on the first call)
+     */
+    public void runInBackground() {
+        synchronized (backgroundLock) {
+            if (backgroundThread == null) {
+                backgroundThread = new Thread(this::optimizeInBackground, "background-planner");
+                backgroundThread.setDaemon(true);
+                backgroundThread.start();
+            }
+            backgroundRunning = true;
+            backgroundLock.notifyAll();
+        }
+    }
+
+    /**
+     * Cut the current slice short and return once it has ended, so that the background thread no longer competes
+     * for the CPU with the caller. The result of the slice is only kept if the best plan has not been replaced
+     * meanwhile.
+     */
+    public void pauseBackground() {
+        synchronized (backgroundLock) {
+            backgroundRunning = false;
+            try {
+                awaitEndOfSlice();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
-    public double estimateMarginalCost(Task task, long timeLimit) {
+    /**
+     * Stop the background thread for good and wait for it to end
+     */
+    public void stopBackground() {
+        Thread thread;
+        synchronized (backgroundLock) {
+            backgroundRunning = false;
+            thread = backgroundThread;
+            backgroundThread = null;
+            if (thread == null) {
+                return;
+            }
+            if (backgroundSlice != null) {
+                backgroundSlice.cancel();
+            }
+            thread.interrupt();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // called with backgroundLock held
+    private void awaitEndOfSlice() throws InterruptedException {
+        if (backgroundSlice != null) {
+            backgroundSlice.cancel();
+        }
+        while (backgroundSlice != null) {
+            backgroundLock.wait();
+        }
+    }
+
+    // called with backgroundLock held, by the background thread once its slice is over
+    private void endSlice() {
+        backgroundSlice = null;
+        backgroundLock.notifyAll();
+    }
+
+    private void optimizeInBackground() {
+        try {
+            int turn = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                CentralizedPlan plan;
+                int generation;
+                Task likelyTask = null;
+                Deadline slice;
+                synchronized (backgroundLock) {
+                    while (!backgroundRunning) {
+                        backgroundLock.wait();
+                    }
+                    plan = bestPlan;
+                    generation = this.generation;
+                    // turns go to the best plan and to each likely task whose speculative plan still needs time
+                    for (int i = 0; i < likelyTasks.size() && likelyTask == null; i++) {
+                        turn = (turn + 1) % (likelyTasks.size() + 1);
+                        if (turn == 0) {
+                            break;
+                        }
+                        SpeculativePlan speculative = speculativePlans.get(cityPair(likelyTasks.get(turn - 1)));
+                        if (speculative == null || speculative.generation != generation
+                                || speculative.timeSpent < speculationTime) {
+                            likelyTask = likelyTasks.get(turn - 1);
+                        }
+                    }
+                    if (likelyTask == null && plan.getTasks().isEmpty()) { // nothing to optimize yet
+                        backgroundLock.wait(BACKGROUND_SLICE);
+                        continue;
+                    }
+                    slice = Deadline.in(BACKGROUND_SLICE);
+                    backgroundSlice = slice;
+                }
+                try {
+                    if (likelyTask != null) {
+                        speculate(plan, likelyTask, generation, slice);
+                    } else {
+                        improve(plan, slice);
+                    }
+                } finally {
+                    synchronized (backgroundLock) {
+                        endSlice();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped while waiting
+        }
+    }
+
+    /**
+     * One slice of SLS on the best plan
+     */
+    private void improve(CentralizedPlan plan, Deadline slice) {
+        CentralizedPlan improved = SLS.optimizeSlice(plan, slice, backgroundRandom);
+        synchronized (backgroundLock) {
+            if (bestPlan == plan && improved.getCost() < plan.getCost()) {
+                PrintHandler.println("[BGD] best plan improved: " + plan.getCost() + " -> " + improved.getCost(), 3);
+                bestPlan = improved;
+            }
+        }
+    }
+
+    /**
+     * One slice of SLS on the plan where the likely task is added to the best plan
+     */
+    private void speculate(CentralizedPlan plan, Task likelyTask, int generation, Deadline slice) {
+        SpeculativePlan previous = speculativePlans.get(cityPair(likelyTask));
+        CentralizedPlan start;
+        long timeSpent;
+        if (previous != null && previous.generation == generation) {
+            likelyTask = previous.task;
+            start = previous.plan;
+            timeSpent = previous.timeSpent;
+        } else {
+            int id = plan.getTasks().stream().mapToInt(t -> t.id + 1).max().orElse(0);
+            likelyTask = new Task(id, likelyTask.pickupCity, likelyTask.deliveryCity, 0, likelyTask.weight);
+            start = PlanGenerator.addTask(plan, likelyTask, AddStrategy.CHEAPEST_INSERTION);
+            timeSpent = 0;
+        }
         long startTime = System.currentTimeMillis();
+        CentralizedPlan improved = SLS.optimizeSlice(start, slice, backgroundRandom);
+        timeSpent += System.currentTimeMillis() - startTime; // less than a slice if it was cut short
+        synchronized (backgroundLock) {
+            if (this.generation == generation) {
+                PrintHandler.println("[SPC] speculative plan for " + likelyTask + ": " + improved.getCost(), 3);
+                speculativePlans.put(cityPair(likelyTask),
+                        new SpeculativePlan(likelyTask, improved, generation, timeSpent));
+            }
+        }
+    }
 
-        double oldCost = this.bestPlan.getCost();
+    private void setBestPlan(CentralizedPlan plan) {
+        synchronized (backgroundLock) {
+            bestPlan = plan;
+        }
+    }
 
-        CentralizedPlan nextPlan = PlanGenerator.addTask(bestPlan, task, AddStrategy.ASTAR_INIT);
-        long timeUsedAlready = (System.currentTimeMillis() - startTime);
+    public double estimateMarginalCost(Task task, Deadline deadline) {
+        CentralizedPlan bestPlan = this.bestPlan;
+        double oldCost = bestPlan.getCost();
+        int estimate;
+        synchronized (backgroundLock) {
+            estimate = ++estimates;
+            planIfBetIsWon = Optional.empty();
+        }
 
-        nextPlan = SLS.optimize(nextPlan, timeLimit - timeUsedAlready);
-        planIfBetIsWon = Optional.of(nextPlan);
+        CentralizedPlan nextPlan;
+        SpeculativePlan speculative = speculativePlans.get(cityPair(task));
+        if (bestPlan.getTasks().isEmpty()) {
+            // a single task can only be picked up then delivered, its cheapest insertion is the best plan
+            nextPlan = PlanGenerator.addTask(bestPlan, task, AddStrategy.CHEAPEST_INSERTION);
+        } else {
+            if (speculative != null && speculative.generation == generation && speculative.task.weight == task.weight) {
+                PrintHandler.println("[SPC] speculative plan found for " + task + " (optimized for " + speculative.timeSpent + "ms)", 2);
+                // the speculation ran between the auctions, the whole bid window still goes to SLS on top of it
+                nextPlan = speculative.plan.replaceTask(speculative.task, task);
+            } else {
+                nextPlan = PlanGenerator.addTask(bestPlan, task, AddStrategy.CHEAPEST_INSERTION);
+            }
+            if (!deadline.hasExpiredNow()) {
+                nextPlan = SLS.optimize(nextPlan, deadline, estimateWorkers, random, pool);
+            }
+        }
+        synchronized (backgroundLock) {
+            if (estimate == estimates && !deadline.isCancelled()) { // not discarded meanwhile
+                planIfBetIsWon = Optional.of(nextPlan);
+            }
+        }
 
         return (nextPlan.getCost() - oldCost); // marginal actualCost
     }
 
+    /**
+     * Marginal cost of putting the task at its cheapest place in the current plan (over all vehicles, nothing else
+     * moves). It is an upper bound of what SLS would find and takes microseconds.
+     */
+    public double insertionMarginalCost(Task task) {
+        CentralizedPlan bestPlan = this.bestPlan;
+        discardEstimate();
+
+        double marginalCost = Double.POSITIVE_INFINITY;
+        for (Vehicle v : bestPlan.getVehicles()) {
+            VehiclePlan.Insertion insertion = bestPlan.getPlan(v).cheapestInsertion(task);
+            if (insertion != null) {
+                marginalCost = Math.min(marginalCost, insertion.cost);
+            }
+        }
+        return marginalCost;
+    }
+
+    /**
+     * Forget the plan of the last estimate, and of the one still running if any: it will not be published
+     */
+    public void discardEstimate() {
+        synchronized (backgroundLock) {
+            estimates += 1;
+            planIfBetIsWon = Optional.empty();
+        }
+    }
+
     public void addTask(Task task) {
+        Optional<CentralizedPlan> planIfBetIsWon;
+        synchronized (backgroundLock) {
+            planIfBetIsWon = this.planIfBetIsWon;
+            this.planIfBetIsWon = Optional.empty();
+        }
+        CentralizedPlan nextPlan;
         if (planIfBetIsWon.isPresent()) {
             PrintHandler.println("adding the task we had a bet on because we won it", 1);
-            bestPlan = planIfBetIsWon.get();
-            planIfBetIsWon = Optional.empty();
+            nextPlan = planIfBetIsWon.get();
         } else {
-            bestPlan = PlanGenerator.addTask(this.bestPlan, task, AddStrategy.ASTAR_INIT);
+            nextPlan = PlanGenerator.addTask(this.bestPlan, task, AddStrategy.CHEAPEST_INSERTION);
+        }
+        synchronized (backgroundLock) { // speculative plans were made without this task
+            bestPlan = nextPlan;
+            generation += 1;
+            speculativePlans.clear();
         }
     }
 
@@ -55,12 +357,13 @@ public class Planner {
     }
 
     /**
-     * Return the best plan for all vehicles within a time limit
+     * Return the best plan for all vehicles found before the deadline
      */
-    public CentralizedPlan findBestPlan(long timeLimit) {
-        CentralizedPlan bestLocalPlan = SLS.optimize(this.bestPlan, timeLimit);
+    public CentralizedPlan findBestPlan(Deadline deadline) {
+        stopBackground();
+        CentralizedPlan bestLocalPlan = SLS.optimize(this.bestPlan, deadline, slsWorkers, random, pool);
         if (bestLocalPlan.getCost() < this.bestPlan.getCost()) {
-            this.bestPlan = bestLocalPlan;
+            setBestPlan(bestLocalPlan);
         }
         return this.bestPlan;
     }
@@ -4,21 +4,31 @@ import logist.agent.Agent;
 import logist.task.Task;
 import logist.task.TaskDistribution;
 import logist.topology.Topology;
+import models.DistanceTable;
 import print.PrintHandler;
 import random.RandomHandler;
+import time.Deadline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SmartBidder extends Bidder {
+    private static final long ADV_PLANNER_SLACK = 20; // ms the adversary estimate may end after the bid deadline
+
     private final Agent agent;
-    private final long bidTimeout;
 
     private final Planner ourPlanner;
     private final Planner advPlanner;
     private final Topology topology;
     private final TaskDistribution distribution;
     private final TaskImportanceEstimator taskImpEst;
+    private final ExecutorService advExecutor;
 
     private final BidderParameters p;
     private double bidRate;
@@ -34,15 +44,29 @@ public class SmartBidder extends Bidder {
     public SmartBidder(Agent agent, Topology topology, TaskDistribution distribution, long bidTimeout, TaskImportanceEstimator taskImpEst, double bidRate, BidderParameters p) {
         super();
         this.agent = agent;
-        this.ourPlanner = new Planner(agent.vehicles());
-        this.advPlanner = new Planner(agent.vehicles());
+        if (p.parallelAdvPlanner) { // both estimates run at the same time, they share the workers
+            int advWorkers = Math.max(1, p.slsWorkers / 2);
+            this.ourPlanner = new Planner(agent.vehicles(), p.slsWorkers, Math.max(1, p.slsWorkers - advWorkers));
+            this.advPlanner = new Planner(agent.vehicles(), advWorkers);
+        } else {
+            this.ourPlanner = new Planner(agent.vehicles(), p.slsWorkers);
+            this.advPlanner = new Planner(agent.vehicles(), p.slsWorkers);
+        }
         this.topology = topology;
         this.distribution = distribution;
         this.taskImpEst = taskImpEst;
-        this.bidTimeout = bidTimeout;
         this.bidRate = bidRate;
         this.p = p;
-
+        this.advExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "adversary-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // the background planner is started after the first auction, vehicles have no current city before
+        if (p.useBackgroundPlanner && p.numSpeculativeTasks > 0) {
+            this.ourPlanner.speculateOn(p.numSpeculativeTasks, bidTimeout);
+        }
     }
 
     public Planner getOurPlanner() {
@@ -51,13 +75,41 @@ public class SmartBidder extends Bidder {
 
 
     /**
-     * Make a bid for the given task
+     * Make a bid for the given task, before the deadline
+     *
+     * @return the bid, or null (no bid, as in AuctionTemplate) if none of our vehicles can carry the task
      */
-    public Long bid(Task task) {
+    public Long bid(Task task, Deadline deadline) {
+        if (agent.vehicles().stream().noneMatch(v -> v.capacity() >= task.weight)) {
+            PrintHandler.println("[BID] no vehicle can carry " + task + ", not bidding", 0);
+            return null;
+        }
+
         // default, we will update (either increase or decrease bidRate)
         updateBidRateForNextBid = p.deLearningRate != 0 || p.inLearningRate != 0;
 
-        double marginalCost = this.ourPlanner.estimateMarginalCost(task, bidTimeout);
+        this.ourPlanner.pauseBackground();
+
+        double marginalCost;
+        // finite: the task can at least be done alone at the end of the plan of a vehicle that can carry it
+        double insertionCost = p.useInsertionFastPath ? this.ourPlanner.insertionMarginalCost(task) : Double.NaN;
+        // not enough time for SLS, or SLS could only lower a bid that is already the smallest one
+        boolean fastPath = p.useInsertionFastPath
+                && (deadline.remainingMillis() < p.minTimeForSLS || bidRate * insertionCost <= p.smallestBid);
+
+        // the adversary estimate runs during ours, with the whole bid window as well
+        Future<Double> advMarginalCost = null;
+        Deadline advDeadline = deadline.detachedCopy(); // cancelled alone if the estimate is too slow
+        if (!fastPath && p.useImportanceStrategy && p.parallelAdvPlanner && taskImpEst.mustComputeMarginalDif()) {
+            advMarginalCost = advExecutor.submit(() -> this.advPlanner.estimateMarginalCost(task, advDeadline));
+        }
+
+        if (fastPath) {
+            marginalCost = insertionCost;
+            PrintHandler.println("[BID] using the insertion marginal cost = " + marginalCost, 1);
+        } else {
+            marginalCost = this.ourPlanner.estimateMarginalCost(task, deadline);
+        }
         double bid = bidRate * marginalCost;
         PrintHandler.println("[BID] = bidRate * marginalCost = " + bidRate + " * " + marginalCost + " = " + bid, 1);
 
@@ -70,8 +122,12 @@ public class SmartBidder extends Bidder {
 
         if (p.useImportanceStrategy) {
             double marginalDif = 0;
-            if (taskImpEst.mustComputeMarginalDif()) {
-                marginalDif = marginalCost - this.advPlanner.estimateMarginalCost(task, p.timeForAdvPlanner);
+            if (advMarginalCost != null) {
+                marginalDif = marginalCost - adversaryMarginalCost(advMarginalCost, advDeadline, marginalCost, deadline);
+            } else if (fastPath && taskImpEst.mustComputeMarginalDif()) { // no SLS for the adversary either
+                marginalDif = marginalCost - this.advPlanner.insertionMarginalCost(task);
+            } else if (taskImpEst.mustComputeMarginalDif()) {
+                marginalDif = marginalCost - this.advPlanner.estimateMarginalCost(task, Deadline.in(p.timeForAdvPlanner));
             }
             double importance = taskImpEst.get(task, marginalDif);
             double newBid = bid * (1 - p.importanceLR * importance);
@@ -95,8 +151,28 @@ public class SmartBidder extends Bidder {
         return applyCostUpperBound(task, finalBid, 2);
     }
 
+    /**
+     * Result of the adversary estimate, our own marginal cost if it fails or is not done shortly after the deadline.
+     * A late estimate is stopped and its plan discarded, so that it cannot be taken by the next addTask.
+     */
+    private double adversaryMarginalCost(Future<Double> advMarginalCost, Deadline advDeadline, double ourMarginalCost,
+                                         Deadline deadline) {
+        try {
+            return advMarginalCost.get(deadline.remainingMillis() + ADV_PLANNER_SLACK, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            advDeadline.cancel();
+            advPlanner.discardEstimate();
+            advMarginalCost.cancel(false);
+            PrintHandler.println("[FAIL] adversary planner too slow, assuming the same marginal cost");
+            return ourMarginalCost;
+        } catch (InterruptedException | ExecutionException e) {
+            PrintHandler.println("[FAIL] adversary planner failed, assuming the same marginal cost: " + e);
+            return ourMarginalCost;
+        }
+    }
+
     private long costOfTask(Task task) {
-        return (long) (task.pickupCity.distanceTo(task.deliveryCity) * agent.vehicles().get(0).costPerKm());
+        return (long) (DistanceTable.get().distance(task.pickupCity, task.deliveryCity) * agent.vehicles().get(0).costPerKm());
     }
 
     private long applyCostUpperBound(Task task, long bid, int useIf) {
@@ -162,11 +238,17 @@ public class SmartBidder extends Bidder {
             bidsLostCounter += 1;
         }
 
-        ourBids.add(bids[agent.id()]);
+        if (bids[agent.id()] != null) { // null when we did not bid
+            ourBids.add(bids[agent.id()]);
+        }
         // keep trace of adversary bids
-        if (bids.length > 1) {
+        if (bids.length > 1 && bids[(agent.id() + 1) % 2] != null) {
             int advBidIndex = (agent.id() + 1) % 2;
             advBids.add(bids[advBidIndex]);
         }
+
+        if (p.useBackgroundPlanner) {
+            ourPlanner.runInBackground();
+        }
     }
 }
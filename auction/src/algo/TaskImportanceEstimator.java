@@ -5,17 +5,21 @@ import logist.task.Task;
 import logist.task.TaskDistribution;
 import logist.topology.Topology;
 import logist.topology.Topology.City;
+import models.TopologyCache;
 import print.PrintHandler;
 
-import java.util.*;
+import java.util.List;
 
 public class TaskImportanceEstimator {
 
     private final Topology topology;
-    private final TaskDistribution distribution;
-    private final Map<CityPair, Double> posImportanceMap; // values are between -1 and 1
-    private final Map<CityPair, Double> probImportanceMap; // values are between -1 and 1
-    private final List<Double> marginalCostsDif;
+    private final TopologyCache cache;
+    private final double[] posImportances; // indexed by city pair, values are between -1 and 1
+    private final double[] probImportances; // indexed by city pair, values are between -1 and 1
+
+    // running extremes of the marginal cost differences, they start with values in order to have a range at once
+    private double maxMarginalCostDif = 100;
+    private double minMarginalCostDif = -100;
 
     private int minWeight = Integer.MAX_VALUE;
     private int maxWeight = Integer.MIN_VALUE;
@@ -28,12 +32,9 @@ public class TaskImportanceEstimator {
     public TaskImportanceEstimator(Agent agent, Topology topology, TaskDistribution distribution, double posWeight,
                                    double probWeight, double weightWeight, double marginalWeight) {
         this.topology = topology;
-        this.distribution = distribution;
-        this.posImportanceMap = new HashMap<>();
-        this.probImportanceMap = new HashMap<>();
-        this.marginalCostsDif = new ArrayList<>();
-        this.marginalCostsDif.add(100d); // in order to have values for max and min when computing dif
-        this.marginalCostsDif.add(-100d);
+        this.cache = TopologyCache.get();
+        this.posImportances = new double[cache.numCities() * cache.numCities()];
+        this.probImportances = new double[cache.numCities() * cache.numCities()];
 
         double dif = Math.abs(posWeight + probWeight + weightWeight + marginalWeight - 1);
         if (dif > 0.01) {
@@ -57,13 +58,13 @@ public class TaskImportanceEstimator {
         double weightImportance = 2. * (maxWeight - task.weight) / (maxWeight - minWeight) - 1;
         double marginalImportance = marginCostDifNormalized(marginalDif);
 
-        CityPair cp = new CityPair(task);
+        int pair = cache.pair(task);
 
-        PrintHandler.println("[GET] importances: position = " + posImportanceMap.get(cp) + ", probability = " +
-                probImportanceMap.get(cp) + ", weight = " + weightImportance + ", marginalImportance = " + marginalImportance, 2);
+        PrintHandler.println("[GET] importances: position = " + posImportances[pair] + ", probability = " +
+                probImportances[pair] + ", weight = " + weightImportance + ", marginalImportance = " + marginalImportance, 2);
 
-        return posWeight * posImportanceMap.get(cp) +
-                probWeight * probImportanceMap.get(cp) +
+        return posWeight * posImportances[pair] +
+                probWeight * probImportances[pair] +
                 weightWeight * weightImportance +
                 marginalWeight * marginalImportance;
     }
@@ -73,46 +74,19 @@ public class TaskImportanceEstimator {
     }
 
     private double marginCostDifNormalized(double dif) {
-        marginalCostsDif.add(dif);
-        double maxDif = Math.max(0, marginalCostsDif.stream().max(Comparator.naturalOrder()).get());
-        double minDif = Math.min(0, marginalCostsDif.stream().min(Comparator.naturalOrder()).get());
+        maxMarginalCostDif = Math.max(maxMarginalCostDif, dif);
+        minMarginalCostDif = Math.min(minMarginalCostDif, dif);
+        double maxDif = Math.max(0, maxMarginalCostDif);
+        double minDif = Math.min(0, minMarginalCostDif);
         maxDif = Math.max(maxDif, -minDif);
         minDif = Math.min(minDif, -maxDif);
         return 2 * ((dif - minDif) / (maxDif - minDif)) - 1;
     }
 
-    private Map<City, Double> initProbOfDeliveryCity() {
-        final Map<City, Double> probOfDeliveryCityMap = new HashMap<>();
-        double probOfPickupCity = 1. / topology.cities().size();
-
-        for (City to : topology.cities()) {
-            double probOfDeliveryCity = 0;
-            for (City from : topology.cities()) {
-                probOfDeliveryCity += probOfPickupCity * this.distribution.probability(from, to);
-            }
-            probOfDeliveryCityMap.put(to, probOfDeliveryCity);
-        }
-        return probOfDeliveryCityMap;
-    }
-
-    private Map<City, Double> initCityToAllCitiesDistance() {
-        Map<City, Double> cityToAllCitiesDistance = new HashMap<>();
-        for (City from : topology.cities()) {
-            double distanceToAllCities = 0;
-            for (City to : topology.cities()) {
-                distanceToAllCities += from.distanceTo(to);
-            }
-            cityToAllCitiesDistance.put(from, distanceToAllCities);
-        }
-        return cityToAllCitiesDistance;
-    }
-
     private void init() {
         List<City> cities = topology.cities();
         if (cities.size() > 0) {
-            Map<City, Double> cityToAllCitiesDistance = initCityToAllCitiesDistance();
-            Map<City, Double> probOfDeliveryCityMap = initProbOfDeliveryCity();
-            double maxDistance = cityToAllCitiesDistance.values().stream().max(Comparator.naturalOrder()).get();
+            double maxDistance = cities.stream().mapToDouble(cache::distanceToAll).max().getAsDouble();
 
             double minPosImp = Double.POSITIVE_INFINITY;
             double minProbImp = Double.POSITIVE_INFINITY;
@@ -122,13 +96,13 @@ public class TaskImportanceEstimator {
 
             for (City from : cities) {
                 for (City to : cities) {
-                    CityPair cp = new CityPair(from, to);
-                    double bothDistances = cityToAllCitiesDistance.get(from) + cityToAllCitiesDistance.get(to);
+                    int pair = cache.pair(from, to);
+                    double bothDistances = cache.distanceToAll(from) + cache.distanceToAll(to);
                     double positionImportance = maxDistance - bothDistances; // the more centered (less distant to most cities), the more important
-                    double probImportance = probOfDeliveryCityMap.get(from); // if the city of pickup is likely to be a deliver city, the more important
+                    double probImportance = cache.deliveryProbability(from); // if the city of pickup is likely to be a deliver city, the more important
 
-                    this.posImportanceMap.put(cp, positionImportance);
-                    this.probImportanceMap.put(cp, probImportance);
+                    this.posImportances[pair] = positionImportance;
+                    this.probImportances[pair] = probImportance;
 
                     maxPosImp = Math.max(maxPosImp, positionImportance);
                     maxProbImp = Math.max(maxProbImp, probImportance);
@@ -139,46 +113,10 @@ public class TaskImportanceEstimator {
             }
 
             // normalization
-            for (City from : cities) {
-                for (City to : cities) {
-                    CityPair cp = new CityPair(from, to);
-                    this.posImportanceMap.put(cp, 2 * (this.posImportanceMap.get(cp) - minPosImp) / (maxPosImp - minPosImp) - 1);
-                    this.probImportanceMap.put(cp, 2 * (this.probImportanceMap.get(cp) - minProbImp) / (maxProbImp - minProbImp) - 1);
-                }
+            for (int pair = 0; pair < posImportances.length; pair++) {
+                this.posImportances[pair] = 2 * (this.posImportances[pair] - minPosImp) / (maxPosImp - minPosImp) - 1;
+                this.probImportances[pair] = 2 * (this.probImportances[pair] - minProbImp) / (maxProbImp - minProbImp) - 1;
             }
         }
     }
-
-    private class CityPair {
-        City from;
-        City to;
-
-        private CityPair(Task task) {
-            this.from = task.pickupCity;
-            this.to = task.deliveryCity;
-        }
-
-        private CityPair(City from, City to) {
-            this.from = from;
-            this.to = to;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            CityPair cityPair = (CityPair) o;
-
-            if (!from.equals(cityPair.from)) return false;
-            return to.equals(cityPair.to);
-        }
-
-        @Override
-        public int hashCode() {
-            int result = from.hashCode();
-            result = 31 * result + to.hashCode();
-            return result;
-        }
-    }
 }
@@ -3,7 +3,9 @@ package algo.astar;
 import logist.simulation.Vehicle;
 import logist.task.Task;
 import logist.topology.Topology;
+import models.DistanceTable;
 import models.VehiclePlan;
+import print.PrintHandler;
 
 import java.util.*;
 
@@ -17,17 +19,18 @@ public class AStar {
     }
 
     private static double distanceRemaining1(State s) {
+        DistanceTable distances = DistanceTable.get();
         double factor = 1;
         double h = 0;
         if (!s.getTaskNotTaken().isEmpty()) {
             h = Math.max(h, s.getTaskNotTaken().stream()
-                    .map(t -> s.getCurrentCity().distanceTo(t.pickupCity))
+                    .map(t -> distances.distance(s.getCurrentCity(), t.pickupCity))
                     .max(Comparator.comparing(Double::doubleValue))
                     .get());
         }
         if (!s.getTaskTaken().isEmpty()) {
             h = Math.max(h, s.getTaskTaken().stream()
-                    .map(t -> s.getCurrentCity().distanceTo(t.deliveryCity))
+                    .map(t -> distances.distance(s.getCurrentCity(), t.deliveryCity))
                     .max(Comparator.comparing(Double::doubleValue))
                     .get());
         }
@@ -35,6 +38,7 @@ public class AStar {
     }
 
     private static double distanceRemaining2(State s) {
+        DistanceTable distances = DistanceTable.get();
         double factor = 1;
         double h = 0;
         List<Topology.City> citiesToGoThrough = new ArrayList<>();
@@ -47,13 +51,13 @@ public class AStar {
         }
         if (citiesToGoThrough.size() == 2) {
             h = Math.min(
-                    s.getCurrentCity().distanceTo(citiesToGoThrough.get(0)) +
-                            citiesToGoThrough.get(0).distanceTo(citiesToGoThrough.get(1)),
-                    s.getCurrentCity().distanceTo(citiesToGoThrough.get(1)) +
-                            citiesToGoThrough.get(1).distanceTo(citiesToGoThrough.get(0))
+                    distances.distance(s.getCurrentCity(), citiesToGoThrough.get(0)) +
+                            distances.distance(citiesToGoThrough.get(0), citiesToGoThrough.get(1)),
+                    distances.distance(s.getCurrentCity(), citiesToGoThrough.get(1)) +
+                            distances.distance(citiesToGoThrough.get(1), citiesToGoThrough.get(0))
             );
         } else if (citiesToGoThrough.size() == 1) {
-            h = s.getCurrentCity().distanceTo(citiesToGoThrough.get(0));
+            h = distances.distance(s.getCurrentCity(), citiesToGoThrough.get(0));
         }
         return factor * h * s.getCostPerKM();
     }
@@ -71,46 +75,56 @@ public class AStar {
         return factor * citiesToGoThrough.size() * minDistance * s.getCostPerKM();
     }
 
-    public static VehiclePlan run(final Vehicle v, final List<Task> tasks, final Heuristic h) {
-
-        Comparator<State> statesComparator = (s1, s2) -> {
-            switch (h) {
-                case DISTANCE_REMAINING1:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining1(s1),
-                            s2.getCurrentCost() + distanceRemaining1(s2));
-                case DISTANCE_REMAINING2:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining2(s1),
-                            s2.getCurrentCost() + distanceRemaining2(s2));
-                case DISTANCE_REMAINING3:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining3(s1),
-                            s2.getCurrentCost() + distanceRemaining3(s2));
-                case WEIGHT_NOT_TAKEN:
-                    return Double.compare(s1.getCurrentCost() + weightOfTasksNotTaken(s1),
-                            s2.getCurrentCost() + weightOfTasksNotTaken(s2));
-                case ZERO:
-                default:
-                    return Double.compare(s1.getCurrentCost(), s2.getCurrentCost());
-            }
+    private static double heuristic(State s, Heuristic h) {
+        switch (h) {
+            case DISTANCE_REMAINING1:
+                return distanceRemaining1(s);
+            case DISTANCE_REMAINING2:
+                return distanceRemaining2(s);
+            case DISTANCE_REMAINING3:
+                return distanceRemaining3(s);
+            case WEIGHT_NOT_TAKEN:
+                return weightOfTasksNotTaken(s);
+            case ZERO:
+            default:
+                return 0;
+        }
+    }
 
-        };
+    public static VehiclePlan run(final Vehicle v, final List<Task> tasks, final Heuristic h) {
 
         State startingState = new StateRepresentation(v, tasks);
-        VisitOnceQueue statesQueue = new VisitOnceQueue(new PriorityQueue<>(statesComparator), new HashSet<>());
-        statesQueue.visit(startingState);
-        statesQueue.addAll(startingState.getNextStates());
+        OpenList openList = new OpenList();
+        Map<State, Double> closedStates = new HashMap<>(); // cost with which each expanded state was reached
+        openList.push(startingState, startingState.getCurrentCost() + heuristic(startingState, h));
 
         int nSteps = 0;
+        int nDuplicates = 0;
         State state = startingState;
-        while (!state.isFinalState() && !statesQueue.isEmpty()) {
+        while (!openList.isEmpty()) {
+            state = openList.poll();
+            if (state.isFinalState()) {
+                break;
+            }
             nSteps += 1;
-            state = statesQueue.poll();
-            if (statesQueue.hasNotVisited(state)) {
-                statesQueue.visit(state);
-                statesQueue.addAll(state.getNextStates());
+            closedStates.put(state, state.getCurrentCost());
+            for (State next : state.getNextStates()) {
+                Double closedCost = closedStates.get(next);
+                if (closedCost != null && next.getCurrentCost() >= closedCost) {
+                    nDuplicates += 1;
+                } else {
+                    if (closedCost != null) { // reached again with a lower cost, it has to be expanded again
+                        closedStates.remove(next);
+                    }
+                    if (!openList.push(next, next.getCurrentCost() + heuristic(next, h))) {
+                        nDuplicates += 1;
+                    }
+                }
             }
         }
 
-        //System.out.println("ASTAR converged in " + nSteps + " number of steps");
+        PrintHandler.println("ASTAR converged in " + nSteps + " number of steps (" + nDuplicates
+                + " duplicates, peak open size " + openList.getPeakSize() + ")", 4);
 
         if (!state.isFinalState()) {
             throw new IllegalStateException("ASTAR did not find any final state");
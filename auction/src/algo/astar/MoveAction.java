@@ -2,6 +2,7 @@ package algo.astar;
 
 import logist.task.Task;
 import logist.topology.Topology;
+import models.DistanceTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,7 +44,7 @@ public class MoveAction implements Action {
 
     @Override
     public double getCost() {
-        return fromCity.distanceTo(toCity) * costPerKM;
+        return DistanceTable.get().distance(fromCity, toCity) * costPerKM;
     }
 
     @Override
@@ -0,0 +1,117 @@
+package algo.astar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open list of A*: a binary heap indexed by state, so that reaching a queued state again with a lower cost moves it
+ * up in place (decrease-key) instead of queueing a second copy of it.
+ * <p>
+ * The priority f = g + h of each state is given once when it is pushed and kept in an array parallel to the heap, so
+ * that sifting only compares doubles.
+ */
+public class OpenList {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<State, Integer> positions; // position of each queued state in the heap
+    private State[] heap;
+    private double[] priorities;
+    private int size;
+    private int peakSize;
+
+    public OpenList() {
+        this.positions = new HashMap<>();
+        this.heap = new State[INITIAL_CAPACITY];
+        this.priorities = new double[INITIAL_CAPACITY];
+        this.size = 0;
+        this.peakSize = 0;
+    }
+
+    /**
+     * Queue the state, or replace the queued equal state if this one is cheaper
+     *
+     * @param priority current cost of the state plus its heuristic
+     * @return false if an equal state at least as cheap is already queued
+     */
+    public boolean push(State state, double priority) {
+        Integer position = positions.get(state);
+        if (position == null) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, 2 * size);
+                priorities = Arrays.copyOf(priorities, 2 * size);
+            }
+            move(state, priority, size);
+            siftUp(size++);
+            peakSize = Math.max(peakSize, size);
+            return true;
+        } else if (state.getCurrentCost() < heap[position].getCurrentCost()) {
+            move(state, priority, position);
+            siftUp(position);
+            return true;
+        }
+        return false;
+    }
+
+    public State poll() {
+        State top = heap[0];
+        positions.remove(top);
+        size--;
+        if (size > 0) {
+            move(heap[size], priorities[size], 0);
+            siftDown(0);
+        }
+        heap[size] = null;
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPeakSize() {
+        return peakSize;
+    }
+
+    private void move(State state, double priority, int position) {
+        heap[position] = state;
+        priorities[position] = priority;
+        positions.put(state, position);
+    }
+
+    private void siftUp(int position) {
+        State state = heap[position];
+        double priority = priorities[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (priority >= priorities[parent]) {
+                break;
+            }
+            move(heap[parent], priorities[parent], position);
+            position = parent;
+        }
+        move(state, priority, position);
+    }
+
+    private void siftDown(int position) {
+        State state = heap[position];
+        double priority = priorities[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            move(heap[child], priorities[child], position);
+            position = child;
+        }
+        move(state, priority, position);
+    }
+}
@@ -4,6 +4,7 @@ import logist.plan.Plan;
 import logist.simulation.Vehicle;
 import logist.task.Task;
 import logist.topology.Topology;
+import models.DistanceTable;
 import models.VehiclePlan;
 
 import java.util.ArrayList;
@@ -23,6 +24,7 @@ public class StateRepresentation implements State {
     private final double currentCost;
     private final List<Action> previousActions;
     private final double costPerKM;
+    private final int hash; // the lists are not modified once in a state, the open list hashes it on every sift step
 
 
     public StateRepresentation(Vehicle vehicle, List<Task> tasks) {
@@ -48,6 +50,16 @@ public class StateRepresentation implements State {
         this.currentCost = currentCost;
         this.previousActions = Collections.unmodifiableList(previousActions);
         this.costPerKM = costPerKM;
+        this.hash = hash(currentCity, taskTaken, capacityRemaining, taskNotTaken);
+    }
+
+    private static int hash(Topology.City currentCity, List<Task> taskTaken, int capacityRemaining,
+                            List<Task> taskNotTaken) {
+        int result = currentCity != null ? currentCity.hashCode() : 0;
+        result = 31 * result + (taskTaken != null ? taskTaken.hashCode() : 0);
+        result = 31 * result + capacityRemaining;
+        result = 31 * result + (taskNotTaken != null ? taskNotTaken.hashCode() : 0);
+        return result;
     }
 
     @Override
@@ -58,6 +70,7 @@ public class StateRepresentation implements State {
     @Override
     public List<Action> getAllPossibleActions() {
 
+        DistanceTable distances = DistanceTable.get();
         List<Action> possibleActions = new ArrayList<>();
         List<Topology.City> destinationInTaskPath = new ArrayList<>();
 
@@ -66,7 +79,7 @@ public class StateRepresentation implements State {
                 possibleActions.add(new DeliveryAction(task));
                 return possibleActions;
             } else { // Add all "move in direction to city to drop task" actions
-                destinationInTaskPath.add(currentCity.pathTo(task.deliveryCity).get(0));
+                destinationInTaskPath.add(distances.nextCity(currentCity, task.deliveryCity));
             }
         }
 
@@ -75,7 +88,7 @@ public class StateRepresentation implements State {
                 if (task.pickupCity == currentCity) { // Add all "take task in current city" actions
                     possibleActions.add(new PickupAction(task));
                 } else { // Add all "move in direction to city to pickup task" actions
-                    destinationInTaskPath.add(currentCity.pathTo(task.pickupCity).get(0));
+                    destinationInTaskPath.add(distances.nextCity(currentCity, task.pickupCity));
                 }
             }
         }
@@ -162,6 +175,7 @@ public class StateRepresentation implements State {
 
         StateRepresentation that = (StateRepresentation) o;
 
+        if (hash != that.hash) return false;
         if (capacityRemaining != that.capacityRemaining) return false;
         if (currentCity != null ? !currentCity.equals(that.currentCity) : that.currentCity != null) return false;
         if (taskTaken != null ? !taskTaken.equals(that.taskTaken) : that.taskTaken != null) return false;
@@ -170,10 +184,6 @@ public class StateRepresentation implements State {
 
     @Override
     public int hashCode() {
-        int result = currentCity != null ? currentCity.hashCode() : 0;
-        result = 31 * result + (taskTaken != null ? taskTaken.hashCode() : 0);
-        result = 31 * result + capacityRemaining;
-        result = 31 * result + (taskNotTaken != null ? taskNotTaken.hashCode() : 0);
-        return result;
+        return hash;
     }
 }
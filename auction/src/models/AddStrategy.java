@@ -1,3 +1,3 @@
 package models;
 
-public enum AddStrategy {RANDOM_INIT, ASTAR_INIT}
+public enum AddStrategy {RANDOM_INIT, ASTAR_INIT, CHEAPEST_INSERTION}
@@ -0,0 +1,32 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free holder of the cheapest plan found so far, shared by concurrent searches
+ */
+public class BestPlanHolder {
+    private final AtomicReference<CentralizedPlan> best;
+
+    public BestPlanHolder(CentralizedPlan plan) {
+        this.best = new AtomicReference<>(plan);
+    }
+
+    /**
+     * Keep the plan if it is cheaper than the current best one, return whether it was kept
+     */
+    public boolean offer(CentralizedPlan plan) {
+        CentralizedPlan current = best.get();
+        while (plan.getCost() < current.getCost()) {
+            if (best.compareAndSet(current, plan)) {
+                return true;
+            }
+            current = best.get();
+        }
+        return false;
+    }
+
+    public CentralizedPlan get() {
+        return best.get();
+    }
+}
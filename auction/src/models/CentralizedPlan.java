@@ -8,44 +8,97 @@ import logist.task.TaskSet;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Immutable plan of the whole fleet.
+ * <p>
+ * The plans of the vehicles are in an array indexed by vehicle id, and the lists of vehicles and tasks are shared
+ * by every plan derived from this one, so that a neighbor only costs a clone of this (small) array: the vehicle
+ * plans it does not change are shared too, they cannot be mutated once they are in a CentralizedPlan.
+ */
 public class CentralizedPlan {
 
-    private final List<Vehicle> vehicles;
-    private final List<Task> tasks;
-    private final Map<Vehicle, VehiclePlan> plans;
+    private final List<Vehicle> vehicles; // unmodifiable, shared
+    private final List<Task> tasks; // unmodifiable, shared
+    private final VehiclePlan[] plans; // by vehicle id
     private final double cost;
+    private final long hash; // XOR of the hashes of the vehicle plans, each one mixed with its vehicle
 
+    /**
+     * The vehicles without a plan in the map get an empty one
+     */
     public CentralizedPlan(List<Vehicle> vehicles, Map<Vehicle, VehiclePlan> plans, List<Task> tasks) {
-        this.vehicles = new ArrayList<>(vehicles);
-        this.tasks = new ArrayList<>(tasks);
-        this.plans = plans;
-
+        this.vehicles = List.copyOf(vehicles);
+        this.tasks = List.copyOf(tasks);
+        this.plans = new VehiclePlan[vehicles.stream().mapToInt(Vehicle::id).max().orElse(-1) + 1];
         double cost = 0;
-        for (VehiclePlan p : plans.values()) {
-            p.setCanMutate(false);
-            cost += p.getCost();
+        long hash = 0;
+        for (Vehicle v : vehicles) {
+            VehiclePlan vPlan = plans.containsKey(v) ? plans.get(v) : new VehiclePlan(v);
+            vPlan.setCanMutate(false);
+            this.plans[v.id()] = vPlan;
+            cost += vPlan.getCost();
+            hash ^= hashOf(v, vPlan.getHash());
         }
         this.cost = cost;
+        this.hash = hash;
+    }
+
+    private CentralizedPlan(List<Vehicle> vehicles, VehiclePlan[] plans, List<Task> tasks, double cost, long hash) {
+        this.vehicles = vehicles;
+        this.tasks = tasks;
+        this.plans = plans;
+        this.cost = cost;
+        this.hash = hash;
+    }
+
+    private static long hashOf(Vehicle v, long vehiclePlanHash) {
+        return VehiclePlan.mix(vehiclePlanHash + 0x9E3779B97F4A7C15L * (v.id() + 1));
+    }
+
+    /**
+     * Change of the hash of this plan if the hash of the plan of the vehicle changed by vehicleDelta
+     */
+    long hashDelta(Vehicle v, long vehicleDelta) {
+        long vehicleHash = getPlan(v).getHash();
+        return hashOf(v, vehicleHash) ^ hashOf(v, vehicleHash ^ vehicleDelta);
     }
 
     public List<Vehicle> getVehicles() {
-        return Collections.unmodifiableList(vehicles);
+        return vehicles;
     }
 
     public List<Task> getTasks() {
-        return Collections.unmodifiableList(tasks);
+        return tasks;
     }
 
+    public VehiclePlan getPlan(Vehicle v) {
+        return plans[v.id()];
+    }
+
+    /**
+     * Plans of all the vehicles, built on every call: use getPlan(v) to read the plan of one vehicle
+     */
     public Map<Vehicle, VehiclePlan> getPlans() {
-        return Collections.unmodifiableMap(plans);
+        Map<Vehicle, VehiclePlan> map = new LinkedHashMap<>();
+        for (Vehicle v : vehicles) {
+            map.put(v, getPlan(v));
+        }
+        return Collections.unmodifiableMap(map);
     }
 
     public double getCost() {
         return this.cost;
     }
 
+    /**
+     * Zobrist fingerprint of the plan, equal plans have equal hashes (and different plans almost never do)
+     */
+    public long getHash() {
+        return this.hash;
+    }
+
     public List<Plan> toLogistPlans() {
-        return this.vehicles.stream().map(v -> this.plans.get(v).getPlan()).collect(Collectors.toList());
+        return this.vehicles.stream().map(v -> getPlan(v).getPlan()).collect(Collectors.toList());
     }
 
     public List<Plan> toLogistPlans(TaskSet trueTasks) {
@@ -65,22 +118,69 @@ public class CentralizedPlan {
             }
         }
         for (Vehicle v : vehicles) {
-            plans.add(this.plans.get(v).getPlan(oldToNewTasksMap::get));
+            plans.add(getPlan(v).getPlan(oldToNewTasksMap::get));
         }
         return plans;
     }
 
     public CentralizedPlan copy() {
-        Map<Vehicle, VehiclePlan> newPlans = new HashMap<>();
-        vehicles.forEach(v -> {
-            newPlans.put(v, this.plans.get(v).copy());
-        });
-        return new CentralizedPlan(this.vehicles, newPlans, this.tasks);
+        VehiclePlan[] newPlans = new VehiclePlan[plans.length];
+        for (Vehicle v : vehicles) {
+            newPlans[v.id()] = getPlan(v).copy();
+            newPlans[v.id()].setCanMutate(false);
+        }
+        return new CentralizedPlan(vehicles, newPlans, tasks, cost, hash);
     }
 
+    /**
+     * Same plan where one task is done by another one between the same cities and of the same weight
+     */
+    public CentralizedPlan replaceTask(Task oldTask, Task newTask) {
+        List<Task> newTasks = new ArrayList<>(tasks);
+        newTasks.set(newTasks.indexOf(oldTask), newTask);
+        VehiclePlan[] newPlans = plans.clone();
+        long newHash = hash;
+        for (Vehicle v : vehicles) {
+            if (getPlan(v).contains(oldTask)) {
+                VehiclePlan vPlan = getPlan(v).copy();
+                if (!vPlan.replaceTask(oldTask, newTask)) {
+                    throw new IllegalArgumentException("task " + newTask + " cannot replace " + oldTask);
+                }
+                vPlan.setCanMutate(false);
+                newPlans[v.id()] = vPlan;
+                newHash ^= hashDelta(v, getPlan(v).getHash() ^ vPlan.getHash());
+            }
+        }
+        return new CentralizedPlan(vehicles, newPlans, Collections.unmodifiableList(newTasks), cost, newHash);
+    }
+
+    /**
+     * Replace the plan of one vehicle, the new cost is derived from the cost change of this vehicle only
+     */
     public CentralizedPlan modifyVehiclePlan(Vehicle v, VehiclePlan vPlan) {
-        Map<Vehicle, VehiclePlan> newPlans = new HashMap<>(plans);
-        newPlans.put(v, vPlan);
-        return new CentralizedPlan(vehicles, newPlans, tasks);
+        VehiclePlan oldPlan = getPlan(v);
+        VehiclePlan[] newPlans = plans.clone();
+        newPlans[v.id()] = vPlan;
+        vPlan.setCanMutate(false);
+        double delta = vPlan.getCost() - oldPlan.getCost();
+        long newHash = this.hash ^ hashDelta(v, oldPlan.getHash() ^ vPlan.getHash());
+        return new CentralizedPlan(vehicles, newPlans, tasks, this.cost + delta, newHash);
+    }
+
+    /**
+     * Replace the plans of two different vehicles (a task passed from one to the other) with a single clone
+     */
+    public CentralizedPlan modifyVehiclePlans(Vehicle v1, VehiclePlan vPlan1, Vehicle v2, VehiclePlan vPlan2) {
+        VehiclePlan oldPlan1 = getPlan(v1);
+        VehiclePlan oldPlan2 = getPlan(v2);
+        VehiclePlan[] newPlans = plans.clone();
+        newPlans[v1.id()] = vPlan1;
+        newPlans[v2.id()] = vPlan2;
+        vPlan1.setCanMutate(false);
+        vPlan2.setCanMutate(false);
+        double delta = vPlan1.getCost() - oldPlan1.getCost() + vPlan2.getCost() - oldPlan2.getCost();
+        long newHash = this.hash ^ hashDelta(v1, oldPlan1.getHash() ^ vPlan1.getHash())
+                ^ hashDelta(v2, oldPlan2.getHash() ^ vPlan2.getHash());
+        return new CentralizedPlan(vehicles, newPlans, tasks, this.cost + delta, newHash);
     }
 }
@@ -0,0 +1,85 @@
+package models;
+
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.List;
+
+/**
+ * All-pairs distances and first hops of the topology, stored in flat arrays indexed by city id.
+ * <p>
+ * It is built once in setup() and then shared by every planner, so that cost evaluations are array loads instead of
+ * calls into the logist topology. The centralized, deliberative and reactive modules use this class as well.
+ */
+public class DistanceTable {
+    private static volatile DistanceTable table;
+
+    private final Topology topology;
+    private final City[] cities;
+    private final int numCities;
+    private final double[] distances; // distances[from * numCities + to]
+    private final int[] nextHops; // id of the first city on the shortest path, or of the destination itself
+
+    private DistanceTable(Topology topology) {
+        List<City> cityList = topology.cities();
+        this.topology = topology;
+        this.numCities = cityList.size();
+        this.cities = new City[numCities];
+        this.distances = new double[numCities * numCities];
+        this.nextHops = new int[numCities * numCities];
+
+        for (City city : cityList) {
+            cities[city.id] = city;
+        }
+        for (City from : cityList) {
+            for (City to : cityList) {
+                int idx = from.id * numCities + to.id;
+                distances[idx] = from.distanceTo(to);
+                nextHops[idx] = from == to ? to.id : from.pathTo(to).get(0).id;
+            }
+        }
+    }
+
+    /**
+     * Build the table of the given topology, it is kept as long as the topology does not change
+     */
+    public static synchronized DistanceTable init(Topology topology) {
+        DistanceTable table = DistanceTable.table;
+        if (table == null || table.topology != topology) {
+            table = new DistanceTable(topology);
+            DistanceTable.table = table;
+        }
+        return table;
+    }
+
+    public static DistanceTable get() {
+        DistanceTable table = DistanceTable.table;
+        if (table == null) {
+            throw new IllegalStateException("DistanceTable.init must be called during setup");
+        }
+        return table;
+    }
+
+    public int numCities() {
+        return numCities;
+    }
+
+    public City city(int id) {
+        return cities[id];
+    }
+
+    public double distance(int from, int to) {
+        return distances[from * numCities + to];
+    }
+
+    public double distance(City from, City to) {
+        return distances[from.id * numCities + to.id];
+    }
+
+    /**
+     * First city to move to when going from one city to another (the destination itself if they are neighbors)
+     */
+    public City nextCity(City from, City to) {
+        return cities[nextHops[from.id * numCities + to.id]];
+    }
+}
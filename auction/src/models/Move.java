@@ -0,0 +1,117 @@
+package models;
+
+import logist.simulation.Vehicle;
+import logist.task.Task;
+
+/**
+ * A neighbor of a plan described by the change that leads to it and what this change costs, so that SLS can score
+ * all the neighbors of a step and only build the plan of the one it moves to
+ */
+abstract class Move {
+    final Operator operator;
+    final double delta; // cost of the neighbor minus cost of the plan
+
+    private Move(Operator operator, double delta) {
+        this.operator = operator;
+        this.delta = delta;
+    }
+
+    abstract CentralizedPlan apply(CentralizedPlan plan);
+
+    /**
+     * Hash of the neighbor XOR hash of the plan, derived like the delta: without building the neighbor
+     */
+    abstract long hashDelta(CentralizedPlan plan);
+
+    /**
+     * A task of one vehicle given to another one
+     */
+    static class PassTask extends Move {
+        private final Vehicle from;
+        private final Vehicle to;
+        private final Task task;
+        private final VehiclePlan.Insertion insertion;
+
+        PassTask(Vehicle from, Vehicle to, Task task, double removalCost, VehiclePlan.Insertion insertion) {
+            super(Operator.PASS_TASKS_AROUND, removalCost + insertion.cost);
+            this.from = from;
+            this.to = to;
+            this.task = task;
+            this.insertion = insertion;
+        }
+
+        @Override
+        CentralizedPlan apply(CentralizedPlan plan) {
+            VehiclePlan fromPlan = plan.getPlan(from).copy();
+            fromPlan.removeTask(task);
+            VehiclePlan toPlan = plan.getPlan(to).copy();
+            toPlan.insertTask(task, insertion);
+            return plan.modifyVehiclePlans(from, fromPlan, to, toPlan);
+        }
+
+        @Override
+        long hashDelta(CentralizedPlan plan) {
+            return plan.hashDelta(from, plan.getPlan(from).removalHash(task))
+                    ^ plan.hashDelta(to, plan.getPlan(to).insertionHash(task, insertion));
+        }
+    }
+
+    /**
+     * An action done one step earlier or later
+     */
+    static class MoveInTime extends Move {
+        private final Vehicle vehicle;
+        private final int index;
+        private final boolean advance;
+
+        MoveInTime(Vehicle vehicle, int index, boolean advance, double delta) {
+            super(Operator.MOVE_TASKS_IN_TIME, delta);
+            this.vehicle = vehicle;
+            this.index = index;
+            this.advance = advance;
+        }
+
+        @Override
+        CentralizedPlan apply(CentralizedPlan plan) {
+            VehiclePlan vPlan = plan.getPlan(vehicle).copy();
+            if (advance) {
+                vPlan.advanceAction(index);
+            } else {
+                vPlan.postponeAction(index);
+            }
+            return plan.modifyVehiclePlan(vehicle, vPlan);
+        }
+
+        @Override
+        long hashDelta(CentralizedPlan plan) {
+            VehiclePlan vPlan = plan.getPlan(vehicle);
+            return plan.hashDelta(vehicle, advance ? vPlan.swapHash(index - 1) : vPlan.swapHash(index));
+        }
+    }
+
+    /**
+     * Two tasks of a vehicle exchanging their places
+     */
+    static class SwapTasks extends Move {
+        private final Vehicle vehicle;
+        private final VehiclePlan.TaskSwap swap;
+
+        SwapTasks(Vehicle vehicle, VehiclePlan.TaskSwap swap) {
+            super(Operator.SWAP_TASKS, swap.cost);
+            this.vehicle = vehicle;
+            this.swap = swap;
+        }
+
+        @Override
+        CentralizedPlan apply(CentralizedPlan plan) {
+            VehiclePlan vPlan = plan.getPlan(vehicle).copy();
+            vPlan.swapTasks(swap);
+            return plan.modifyVehiclePlan(vehicle, vPlan);
+        }
+
+        @Override
+        long hashDelta(CentralizedPlan plan) {
+            return plan.hashDelta(vehicle, plan.getPlan(vehicle).swapHash(swap));
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package models;
+
+/**
+ * Neighbourhood operators of SLS, with the number of tasks the chosen vehicle needs for the operator to apply
+ */
+public enum Operator {
+    PASS_TASKS_AROUND(1), MOVE_TASKS_IN_TIME(2), SWAP_TASKS(2);
+
+    public final int minNumTasks;
+
+    Operator(int minNumTasks) {
+        this.minNumTasks = minNumTasks;
+    }
+}
@@ -0,0 +1,71 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Adaptive choice of the SLS operators used at each step, one scheduler per search thread.
+ * <p>
+ * Each operator has a score, the exponential average of the cost improvement it brought per millisecond it took.
+ * Every applicable operator is used once per step (the search needs the variety of their neighbors), and
+ * EXTRA_DRAWS more uses are drawn on a roulette wheel proportional to the scores, never below MIN_PROBABILITY so that
+ * an operator which stopped paying off early can come back later in the search.
+ */
+public class OperatorScheduler {
+    private static final int EXTRA_DRAWS = 1;
+    private static final double MIN_PROBABILITY = 0.1;
+    private static final double SMOOTHING = 0.01; // weight of the last use in the score
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final double[] scores = new double[OPERATORS.length];
+    private final OperatorStatistics statistics = new OperatorStatistics();
+
+    /**
+     * Operators to use on a plan whose busiest vehicle has maxNumTasks tasks, an operator can come several times
+     * (empty if none applies)
+     */
+    public List<Operator> choose(int maxNumTasks, SplittableRandom random) {
+        List<Operator> chosen = new ArrayList<>(OPERATORS.length + EXTRA_DRAWS);
+        double totalScore = 0;
+        for (Operator operator : OPERATORS) {
+            if (operator.minNumTasks <= maxNumTasks) {
+                chosen.add(operator);
+                totalScore += scores[operator.ordinal()];
+            }
+        }
+        if (chosen.isEmpty() || totalScore <= 0) {
+            return chosen;
+        }
+
+        int numApplicable = chosen.size();
+        double minProbability = Math.min(MIN_PROBABILITY, 1.0 / numApplicable);
+        for (int draw = 0; draw < EXTRA_DRAWS; draw++) {
+            double r = random.nextDouble();
+            for (int i = 0; i < numApplicable; i++) {
+                Operator operator = chosen.get(i);
+                r -= minProbability + (1 - numApplicable * minProbability) * scores[operator.ordinal()] / totalScore;
+                if (r < 0 || i == numApplicable - 1) {
+                    chosen.add(operator);
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Credit the operator, used uses times in a step, with the cost improvement of the move it produced (negative if
+     * the move was worse, 0 if another operator produced it) and the time it took
+     */
+    public void record(Operator operator, int uses, double improvement, long nanos) {
+        double gain = Math.max(0, improvement) / Math.max(1e-3, nanos / 1e6);
+        scores[operator.ordinal()] = (1 - SMOOTHING) * scores[operator.ordinal()] + SMOOTHING * gain;
+        statistics.record(operator, uses, improvement, nanos);
+    }
+
+    public OperatorStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,86 @@
+package models;
+
+import java.util.Locale;
+
+/**
+ * How many times each SLS operator was used, how long it took and what it brought, so that we can see where the
+ * search time goes. One instance per search thread, merged at the end of a run.
+ */
+public class OperatorStatistics {
+    private static final int NUM_OPERATORS = Operator.values().length;
+
+    private final long[] uses = new long[NUM_OPERATORS];
+    private final long[] steps = new long[NUM_OPERATORS]; // SLS steps where it was used
+    private final long[] improvingSteps = new long[NUM_OPERATORS]; // steps where it produced a better plan
+    private final long[] nanos = new long[NUM_OPERATORS];
+    private final double[] improvements = new double[NUM_OPERATORS];
+
+    void record(Operator operator, int uses, double improvement, long nanos) {
+        int i = operator.ordinal();
+        this.uses[i] += uses;
+        this.steps[i] += 1;
+        this.nanos[i] += nanos;
+        if (improvement > 0) {
+            this.improvingSteps[i] += 1;
+            this.improvements[i] += improvement;
+        }
+    }
+
+    public synchronized void merge(OperatorStatistics other) {
+        synchronized (other) {
+            for (int i = 0; i < NUM_OPERATORS; i++) {
+                uses[i] += other.uses[i];
+                steps[i] += other.steps[i];
+                improvingSteps[i] += other.improvingSteps[i];
+                nanos[i] += other.nanos[i];
+                improvements[i] += other.improvements[i];
+            }
+        }
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < NUM_OPERATORS; i++) {
+            uses[i] = 0;
+            steps[i] = 0;
+            improvingSteps[i] = 0;
+            nanos[i] = 0;
+            improvements[i] = 0;
+        }
+    }
+
+    public synchronized long getUses(Operator operator) {
+        return uses[operator.ordinal()];
+    }
+
+    public synchronized long getSteps(Operator operator) {
+        return steps[operator.ordinal()];
+    }
+
+    public synchronized long getImprovingSteps(Operator operator) {
+        return improvingSteps[operator.ordinal()];
+    }
+
+    public synchronized double getMillis(Operator operator) {
+        return nanos[operator.ordinal()] / 1e6;
+    }
+
+    public synchronized double getImprovement(Operator operator) {
+        return improvements[operator.ordinal()];
+    }
+
+    /**
+     * One line per operator: uses, share of its steps that improved the plan, time spent and improvement per ms
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operator operator : Operator.values()) {
+            int i = operator.ordinal();
+            double millis = nanos[i] / 1e6;
+            sb.append(String.format(Locale.ROOT, "%-18s uses = %8d, improving = %5.2f%%, time = %8.1fms, improvement/ms = %.3f%n",
+                    operator, uses[i], steps[i] == 0 ? 0. : 100. * improvingSteps[i] / steps[i], millis,
+                    millis == 0 ? 0. : improvements[i] / millis));
+        }
+        return sb.toString().trim();
+    }
+}
@@ -11,12 +11,18 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
 
 public class PlanGenerator {
     private PlanGenerator() {
     }
 
     public static CentralizedPlan generate(List<Vehicle> vehicles, List<Task> tasks, InitStrategy initStrategy) {
+        return generate(vehicles, tasks, initStrategy, RandomHandler.get());
+    }
+
+    public static CentralizedPlan generate(List<Vehicle> vehicles, List<Task> tasks, InitStrategy initStrategy,
+                                           SplittableRandom random) {
 
         PrintHandler.println("initialization with " + initStrategy, 3);
         Vehicle largest = vehicles.get(0);
@@ -40,7 +46,7 @@ public class PlanGenerator {
                 while (!taskTaken.isEmpty() || !taskNotTaken.isEmpty()) {
                     int possibleChoice = taskTaken.size() + taskNotTaken.size();
 
-                    int n = RandomHandler.get().nextInt(possibleChoice);
+                    int n = random.nextInt(possibleChoice);
                     if (n >= taskTaken.size()) {
                         Task task = taskNotTaken.get(n - taskTaken.size());
                         if (initialPlan.addLoadAction(task)) {
@@ -81,11 +87,34 @@ public class PlanGenerator {
                 return generate(vehicles, tasks, InitStrategy.ASTAR);
             case ASTAR_INIT:
                 return generate(vehicles, tasks, InitStrategy.ASTAR);
-            //case ?:
-            //TODO, could give the task to a random vehicle (= no need to initialize again)
+            case CHEAPEST_INSERTION:
+                return insertCheapest(plan, t, tasks);
             default:
                 throw new UnsupportedOperationException();
         }
 
     }
+
+    /**
+     * Keep the current plans and insert the task where it costs the least, over all vehicles
+     */
+    private static CentralizedPlan insertCheapest(CentralizedPlan plan, Task t, List<Task> tasks) {
+        Vehicle bestVehicle = null;
+        VehiclePlan.Insertion bestInsertion = null;
+        for (Vehicle v : plan.getVehicles()) {
+            VehiclePlan.Insertion insertion = plan.getPlan(v).cheapestInsertion(t);
+            if (insertion != null && (bestInsertion == null || insertion.cost < bestInsertion.cost)) {
+                bestVehicle = v;
+                bestInsertion = insertion;
+            }
+        }
+        if (bestInsertion == null) {
+            throw new IllegalArgumentException("task " + t + " does not fit in any vehicle");
+        }
+        VehiclePlan vPlan = plan.getPlan(bestVehicle).copy();
+        vPlan.insertTask(t, bestInsertion);
+        Map<Vehicle, VehiclePlan> plans = new HashMap<>(plan.getPlans());
+        plans.put(bestVehicle, vPlan);
+        return new CentralizedPlan(plan.getVehicles(), plans, tasks);
+    }
 }
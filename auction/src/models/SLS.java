@@ -4,10 +4,13 @@ import logist.simulation.Vehicle;
 import logist.task.Task;
 import print.PrintHandler;
 import random.RandomHandler;
+import time.Deadline;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class SLS {
     // these are the hyper parameters, they could be not static and different version of SLS could be tested at the same time
@@ -16,30 +19,115 @@ public class SLS {
     private static final double EXPLOITATION_RATE_FROM = 0.0;
     private static final double EXPLOITATION_RATE_TO = 1.0;
     private static final double RATE_OF_ASTAR_INIT = 1.0;
+    // moves during which a visited plan stays tabu, 0 (no tabu list) until a tenure measurably helps, see -Dsls.tabu
+    private static final int TABU_TENURE = Integer.getInteger("sls.tabu", 0);
+
+    private static ForkJoinPool pool;
+    private static final OperatorStatistics statistics = new OperatorStatistics(); // of every run since the start
 
     private SLS() {
     }
 
-    public static CentralizedPlan optimize(CentralizedPlan plan, long timeLimit) { // SLS ALGO WHERE CHOOSE_NEIGHBORS AND LOCAL CHOICE ARE INSIDE "nextPlan(rate)"
-        long startTime = System.currentTimeMillis();
+    public static CentralizedPlan optimize(CentralizedPlan plan, long timeLimit) {
+        return optimize(plan, timeLimit, 1);
+    }
+
+    public static CentralizedPlan optimize(CentralizedPlan plan, long timeLimit, int numWorkers) {
+        return optimize(plan, timeLimit, numWorkers, RandomHandler.get());
+    }
+
+    public static CentralizedPlan optimize(CentralizedPlan plan, long timeLimit, int numWorkers,
+                                          SplittableRandom random) {
+        return optimize(plan, Deadline.in(timeLimit), numWorkers, random);
+    }
+
+    /**
+     * Run numWorkers independent searches (each with its own stream split from the given generator) on a
+     * ForkJoinPool shared by all the callers, they share the best plan found so far and all stop at the deadline
+     */
+    public static CentralizedPlan optimize(CentralizedPlan plan, Deadline deadline, int numWorkers,
+                                          SplittableRandom random) {
+        return optimize(plan, deadline, numWorkers, random, numWorkers <= 1 ? null : getPool(numWorkers));
+    }
+
+    /**
+     * Same on the given pool (it can be null for a single worker). Searches running at the same time must not share
+     * a pool without enough parallelism for all of them: the workers queued last would only start at the deadline.
+     */
+    public static CentralizedPlan optimize(CentralizedPlan plan, Deadline deadline, int numWorkers,
+                                          SplittableRandom random, ForkJoinPool pool) {
+        BestPlanHolder best = new BestPlanHolder(plan);
+        OperatorStatistics runStatistics = new OperatorStatistics();
+
+        PrintHandler.println("starting optimization with: " + plan.getCost() + " (" + numWorkers + " workers)", 2);
+
+        if (numWorkers <= 1) {
+            optimize(plan, deadline.copy(), random, best, runStatistics);
+        } else {
+            List<ForkJoinTask<CentralizedPlan>> workers = new ArrayList<>();
+            for (int i = 0; i < numWorkers; i++) {
+                SplittableRandom workerRandom = random.split();
+                Deadline workerDeadline = deadline.copy();
+                workers.add(pool.submit(() -> optimize(plan, workerDeadline, workerRandom, best, runStatistics)));
+            }
+            workers.forEach(ForkJoinTask::join);
+        }
+
+        PrintHandler.println("ending optimization with: " + best.get().getCost(), 2);
+        if (PrintHandler.isEnabled(3)) {
+            PrintHandler.println("operator statistics:\n" + runStatistics, 3);
+        }
+        statistics.merge(runStatistics);
+        return best.get();
+    }
+
+    /**
+     * Single worker run without the start/end logs, meant to be called over and over by a background planner
+     */
+    public static CentralizedPlan optimizeSlice(CentralizedPlan plan, Deadline deadline, SplittableRandom random) {
+        BestPlanHolder best = new BestPlanHolder(plan);
+        optimize(plan, deadline, random, best, statistics);
+        return best.get();
+    }
+
+    /**
+     * Use, time and improvement of every operator, summed over all the runs so far
+     */
+    public static OperatorStatistics getOperatorStatistics() {
+        return statistics;
+    }
+
+    private static synchronized ForkJoinPool getPool(int numWorkers) {
+        if (pool == null || pool.getParallelism() < numWorkers) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(numWorkers);
+        }
+        return pool;
+    }
 
+    // SLS ALGO WHERE CHOOSE_NEIGHBORS AND LOCAL CHOICE ARE INSIDE "nextPlan(rate)"
+    private static CentralizedPlan optimize(CentralizedPlan plan, Deadline deadline, SplittableRandom random,
+                                            BestPlanHolder best, OperatorStatistics runStatistics) {
+        OperatorScheduler scheduler = new OperatorScheduler();
+        TabuList tabu = new TabuList(TABU_TENURE);
         CentralizedPlan bestPlan = plan;
         double bestCost = bestPlan.getCost();
         double latestBestLocalCost = 0;
         double rateOfAstarInit = RATE_OF_ASTAR_INIT;
 
-        PrintHandler.println("starting optimization with: " + bestCost, 2);
-
-        while (System.currentTimeMillis() - startTime < timeLimit) { // loop on every local minima
+        while (!deadline.hasExpiredNow()) { // loop on every local minima
 
             int iterWithoutImprove = 0;
             double bestLocalCost = plan.getCost();
-            double exploitationRate = EXPLOITATION_RATE_FROM + RandomHandler.get().nextDouble() * (EXPLOITATION_RATE_TO - EXPLOITATION_RATE_FROM);
+            double exploitationRate = EXPLOITATION_RATE_FROM + random.nextDouble() * (EXPLOITATION_RATE_TO - EXPLOITATION_RATE_FROM);
 
             PrintHandler.println("EXPLOITATION_RATE = " + exploitationRate, 3);
+            tabu.visit(plan);
 
-            while (iterWithoutImprove < EXPLOITATION_DEEPNESS && System.currentTimeMillis() - startTime < timeLimit) { // loop on improving one local plan
-                plan = nextPlan(plan, exploitationRate);
+            while (iterWithoutImprove < EXPLOITATION_DEEPNESS && !deadline.hasExpired()) { // loop on improving one local plan
+                plan = nextPlan(plan, bestLocalCost, exploitationRate, random, scheduler, tabu);
                 double cost = plan.getCost();
                 if (cost < bestLocalCost) {
 
@@ -49,7 +137,9 @@ public class SLS {
                     if (cost < bestCost) {
                         bestPlan = plan;
                         bestCost = cost;
-                        PrintHandler.println("best plan improved: " + bestCost, 4);
+                        if (best.offer(plan)) {
+                            PrintHandler.println("best plan improved: " + bestCost, 4);
+                        }
                     }
                 } else { // not improving
                     iterWithoutImprove += 1;
@@ -60,31 +150,58 @@ public class SLS {
                 rateOfAstarInit -= 0.2;
             }
             latestBestLocalCost = bestLocalCost;
-            InitStrategy nextInit = RandomHandler.get().nextDouble() < rateOfAstarInit ? InitStrategy.ASTAR : InitStrategy.RANDOM;
+            if (deadline.hasExpiredNow()) { // a new initial plan (A* in particular) would only make us late
+                break;
+            }
+            InitStrategy nextInit = random.nextDouble() < rateOfAstarInit ? InitStrategy.ASTAR : InitStrategy.RANDOM;
             if (nextInit == InitStrategy.ASTAR) {
                 rateOfAstarInit -= 0.1;
             } else {
                 rateOfAstarInit += 0.1;
             }
-            plan = PlanGenerator.generate(plan.getVehicles(), plan.getTasks(), nextInit);
+            plan = PlanGenerator.generate(plan.getVehicles(), plan.getTasks(), nextInit, random);
         }
 
-        PrintHandler.println("ending optimization with: " + bestCost, 2);
+        runStatistics.merge(scheduler.getStatistics());
         return bestPlan;
     }
 
-    private static CentralizedPlan nextPlan(CentralizedPlan plan, double exploitationRate) {
-        List<CentralizedPlan> neighbors = chooseNeighbours(plan);
-        return localChoice(plan, neighbors, exploitationRate);
-    }
+    private static CentralizedPlan nextPlan(CentralizedPlan plan, double bestLocalCost, double exploitationRate,
+                                            SplittableRandom random, OperatorScheduler scheduler, TabuList tabu) {
+        int maxNumTasks = maxNumTasks(plan);
+        List<Move> moves = new ArrayList<>();
+        int[] uses = new int[Operator.values().length];
+        long[] nanos = new long[Operator.values().length];
+
+        for (Operator operator : scheduler.choose(maxNumTasks, random)) {
+            long startTime = System.nanoTime();
+            chooseMoves(plan, operator, random, moves);
+            nanos[operator.ordinal()] += System.nanoTime() - startTime;
+            uses[operator.ordinal()] += 1;
+        }
 
-    private static List<CentralizedPlan> chooseNeighbours(CentralizedPlan plan) {
-        Map<Vehicle, VehiclePlan> plans = plan.getPlans();
+        Move move = localChoice(plan, moves, bestLocalCost, exploitationRate, random, tabu);
+        CentralizedPlan next = move == null ? plan : move.apply(plan);
+        if (move != null) {
+            tabu.visit(next);
+        }
 
-        List<CentralizedPlan> neighbours = new ArrayList<>();
+        // the operator of the chosen move gets its improvement, all the used ones pay for their time
+        for (Operator operator : Operator.values()) {
+            if (uses[operator.ordinal()] > 0) {
+                boolean chosen = move != null && move.operator == operator;
+                scheduler.record(operator, uses[operator.ordinal()], chosen ? plan.getCost() - next.getCost() : 0,
+                        nanos[operator.ordinal()]);
+            }
+        }
+        return next;
+    }
+
+    private static int maxNumTasks(CentralizedPlan plan) {
         int maxNumTask = 0;
-        for (VehiclePlan p : plans.values()) {
-            if (p.getLength() > maxNumTask) {
+        for (Vehicle v : plan.getVehicles()) {
+            VehiclePlan p = plan.getPlan(v);
+            if (p.getLength() > maxNumTask * 2) {
                 int numActions = p.getLength();
                 if (numActions % 2 != 0) {
                     PrintHandler.println("[FAIL] Num of actions should be pair (tasks * 2)");
@@ -92,132 +209,129 @@ public class SLS {
                 maxNumTask = numActions / 2;
             }
         }
+        return maxNumTask;
+    }
+
+    /**
+     * Add the moves of the operator to the list, they are only scored: no plan is built
+     */
+    private static void chooseMoves(CentralizedPlan plan, Operator operator, SplittableRandom random,
+                                    List<Move> moves) {
         for (int i = 0; i < NUM_NEIGHBORS; i++) {
-            if (maxNumTask >= 1) {
-                neighbours.addAll(passTasksAround(plan, getRandomVehicle(plan, 1)));
-            }
-            if (maxNumTask >= 2) {
-                neighbours.addAll(moveTasksInTime(plan, getRandomVehicle(plan, 2)));
-                neighbours.addAll(swapTasks(plan, getRandomVehicle(plan, 2)));
+            Vehicle v = getRandomVehicle(plan, operator.minNumTasks, random);
+            switch (operator) {
+                case PASS_TASKS_AROUND:
+                    passTasksAround(plan, v, random, moves);
+                    break;
+                case MOVE_TASKS_IN_TIME:
+                    moveTasksInTime(plan, v, random, moves);
+                    break;
+                case SWAP_TASKS:
+                    swapTasks(plan, v, random, moves);
+                    break;
             }
         }
-
-        return neighbours;
     }
 
-    private static CentralizedPlan localChoice(CentralizedPlan plan, List<CentralizedPlan> neighbors, double exploitationRate) {
-        if (neighbors.isEmpty()) {
-            PrintHandler.println("NO NEIGHBORS", 4);
-            return plan;
-        }
-
-        double minCost = Double.MAX_VALUE;
-        List<CentralizedPlan> choices = new ArrayList<>();
-
-        for (CentralizedPlan p : neighbors) {
-            double cost = p.getCost();
-            if (cost < minCost) {
-                choices = new ArrayList<>();
-                choices.add(p);
-                minCost = cost;
-            } else if (cost == minCost) {
-                choices.add(p);
+    /**
+     * Move to apply, null to stay on the current plan.
+     * A move to a plan visited recently is skipped (so that the search does not go back and forth between the same
+     * plans) unless it is better than every plan of this local search, the hash of the neighbor is derived from the
+     * move so that only the chosen one is built.
+     */
+    private static Move localChoice(CentralizedPlan plan, List<Move> moves, double bestLocalCost,
+                                    double exploitationRate, SplittableRandom random, TabuList tabu) {
+        double minDelta = Double.MAX_VALUE;
+        List<Move> choices = new ArrayList<>();
+
+        for (Move move : moves) {
+            double delta = move.delta;
+            if (delta > minDelta) {
+                continue;
+            }
+            if (tabu.isEnabled() && plan.getCost() + delta >= bestLocalCost && tabu.contains(plan.getHash() ^ move.hashDelta(plan))) {
+                continue;
+            }
+            if (delta < minDelta) {
+                choices.clear();
+                choices.add(move);
+                minDelta = delta;
+            } else {
+                choices.add(move);
             }
         }
+        if (choices.isEmpty()) {
+            PrintHandler.println("NO NEIGHBORS", 4);
+            return null;
+        }
 
         int idx = 0;
         if (choices.size() > 1) {
-            idx = RandomHandler.get().nextInt(choices.size());
+            idx = random.nextInt(choices.size());
         }
-        CentralizedPlan bestNeighborPlan = choices.get(idx);
-        if (minCost < plan.getCost()) {
-            return bestNeighborPlan;
-        } else if (RandomHandler.get().nextDouble() < exploitationRate) {
-            return plan;
+        Move bestMove = choices.get(idx);
+        if (minDelta < 0) {
+            return bestMove;
+        } else if (random.nextDouble() < exploitationRate) {
+            return null;
         } else {
-            return bestNeighborPlan;
+            return bestMove;
         }
     }
 
-    private static Vehicle getRandomVehicle(CentralizedPlan plan, int minNumTasks) {
-        return getRandomVehicle(plan, minNumTasks, Integer.MAX_VALUE);
+    private static Vehicle getRandomVehicle(CentralizedPlan plan, int minNumTasks, SplittableRandom random) {
+        return getRandomVehicle(plan, minNumTasks, Integer.MAX_VALUE, random);
     }
 
-    private static Vehicle getRandomVehicle(CentralizedPlan plan, int minNumTasks, int maxNumTasks) {
-        Map<Vehicle, VehiclePlan> plans = plan.getPlans();
+    private static Vehicle getRandomVehicle(CentralizedPlan plan, int minNumTasks, int maxNumTasks, SplittableRandom random) {
         List<Vehicle> vehicles = plan.getVehicles();
 
-        Vehicle v = vehicles.get(RandomHandler.get().nextInt(vehicles.size()));
-        int numTasks = plans.get(v).getLength() / 2;
+        Vehicle v = vehicles.get(random.nextInt(vehicles.size()));
+        int numTasks = plan.getPlan(v).getLength() / 2;
         while (numTasks < minNumTasks || numTasks > maxNumTasks) {
-            v = vehicles.get(RandomHandler.get().nextInt(vehicles.size()));
-            numTasks = plans.get(v).getLength() / 2;
+            v = vehicles.get(random.nextInt(vehicles.size()));
+            numTasks = plan.getPlan(v).getLength() / 2;
         }
         return v;
     }
 
-    private static List<CentralizedPlan> passTasksAround(CentralizedPlan plan, Vehicle v) {
-        List<CentralizedPlan> neighboursPlan = new ArrayList<>();
+    private static void passTasksAround(CentralizedPlan plan, Vehicle v, SplittableRandom random, List<Move> moves) {
+        VehiclePlan vPlan = plan.getPlan(v);
 
-        if (plan.getPlans().get(v).getLength() > 0) {
+        if (vPlan.getLength() > 0) {
             for (Vehicle other : plan.getVehicles()) {
                 if (v != other) {
-                    VehiclePlan vPlan = plan.getPlans().get(v).copy();
-                    Task task = vPlan.takeOutOneTask();
-                    VehiclePlan otherPlan = plan.getPlans().get(other).copy();
-                    otherPlan.addTaskRandomly(task);
-                    CentralizedPlan newPlan = plan
-                            .modifyVehiclePlan(v, vPlan)
-                            .modifyVehiclePlan(other, otherPlan);
-                    neighboursPlan.add(newPlan);
+                    Task task = vPlan.randomTask(random);
+                    VehiclePlan.Insertion insertion = plan.getPlan(other).randomInsertion(task, random);
+                    moves.add(new Move.PassTask(v, other, task, vPlan.removalCost(task), insertion));
                 }
             }
         }
-
-        return neighboursPlan;
     }
 
-    private static List<CentralizedPlan> swapTasks(CentralizedPlan plan, Vehicle v) {
-        List<CentralizedPlan> neighboursPlan = new ArrayList<>();
-        Map<Vehicle, VehiclePlan> plans = plan.getPlans();
-        VehiclePlan vPlan = plan.getPlans().get(v).copy();
-        vPlan.swapTwoTasks();
-        CentralizedPlan newPlan = plan.modifyVehiclePlan(v, vPlan);
-        neighboursPlan.add(newPlan);
-        return neighboursPlan;
+    private static void swapTasks(CentralizedPlan plan, Vehicle v, SplittableRandom random, List<Move> moves) {
+        VehiclePlan.TaskSwap swap = plan.getPlan(v).randomTaskSwap(random);
+        if (swap != null) {
+            moves.add(new Move.SwapTasks(v, swap));
+        }
     }
 
-    private static List<CentralizedPlan> moveTasksInTime(CentralizedPlan plan, Vehicle v) {
-        List<CentralizedPlan> neighboursPlan = new ArrayList<>();
-        Map<Vehicle, VehiclePlan> plans = plan.getPlans();
-
-        if (plans.get(v).getLength() > 2) {
-            int t = RandomHandler.get().nextInt(plans.get(v).getLength());
-
-            boolean isValid;
-            int i = t;
-            do {
-                VehiclePlan vPlan = plan.getPlans().get(v).copy();
-                isValid = vPlan.advanceAction(i);
-                if (isValid) {
-                    CentralizedPlan newPlan = plan.modifyVehiclePlan(v, vPlan);
-                    neighboursPlan.add(newPlan);
-                }
-                i--;
-            } while (isValid);
-            i = t;
-            do {
-                VehiclePlan vPlan = plan.getPlans().get(v).copy();
-                isValid = vPlan.postponeAction(i);
-                if (isValid) {
-                    CentralizedPlan newPlan = plan.modifyVehiclePlan(v, vPlan);
-                    neighboursPlan.add(newPlan);
-                }
-                i++;
-            } while (isValid);
+    /**
+     * Actions t, t - 1, ... each done one step earlier, and actions t, t + 1, ... one step later, as long as it is
+     * possible
+     */
+    private static void moveTasksInTime(CentralizedPlan plan, Vehicle v, SplittableRandom random, List<Move> moves) {
+        VehiclePlan current = plan.getPlan(v);
 
+        if (current.getLength() > 2) {
+            int t = random.nextInt(current.getLength());
 
+            for (int i = t; current.canAdvanceAction(i); i--) {
+                moves.add(new Move.MoveInTime(v, i, true, current.swapCost(i - 1)));
+            }
+            for (int i = t; current.canPostponeAction(i); i++) {
+                moves.add(new Move.MoveInTime(v, i, false, current.swapCost(i)));
+            }
         }
-        return neighboursPlan;
     }
 }
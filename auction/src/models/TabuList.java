@@ -0,0 +1,51 @@
+package models;
+
+/**
+ * Plans visited during the last tenure moves of one search thread, identified by their Zobrist hash.
+ * <p>
+ * A fixed-size direct-mapped table: each hash has a single slot which it takes over when visited, and an entry
+ * expires after tenure moves, so neither the memory nor the cost of a lookup grows with the length of the search. A
+ * collision only forgets an entry early, it never makes a plan tabu which was not visited.
+ */
+public class TabuList {
+    private final long[] hashes;
+    private final long[] visits; // move at which the plan of the slot was visited, 0 if the slot is empty
+    private final int mask;
+    private final int tenure;
+    private long moves = 0;
+
+    /**
+     * @param tenure number of moves during which a visited plan stays tabu, 0 disables the list
+     */
+    public TabuList(int tenure) {
+        int size = Integer.highestOneBit(Math.max(1, tenure) * 4 - 1) << 1; // load factor at most 1/4
+        this.hashes = new long[size];
+        this.visits = new long[size];
+        this.mask = size - 1;
+        this.tenure = tenure;
+    }
+
+    public boolean isEnabled() {
+        return tenure > 0;
+    }
+
+    public void visit(CentralizedPlan plan) {
+        if (tenure > 0) {
+            int slot = slot(plan.getHash());
+            hashes[slot] = plan.getHash();
+            visits[slot] = ++moves;
+        }
+    }
+
+    /**
+     * Whether the plan of the given hash is tabu, so that a neighbor can be checked without being built
+     */
+    public boolean contains(long hash) {
+        int slot = slot(hash);
+        return visits[slot] != 0 && hashes[slot] == hash && moves - visits[slot] < tenure;
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,130 @@
+package models;
+
+import logist.task.Task;
+import logist.task.TaskDistribution;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Everything about the topology and the task distribution that does not change during a game, computed once in
+ * setup() (which has a long timeout) so that bids and plans only do array loads.
+ * <p>
+ * City pairs are indexed by from.id * numCities + to.id, as in DistanceTable. The cache is shared by every agent of
+ * the JVM, which may run their setup() at the same time.
+ */
+public class TopologyCache {
+    private static volatile TopologyCache cache;
+
+    private final Topology topology;
+    private final TaskDistribution distribution;
+    private final DistanceTable distances;
+    private final int numCities;
+
+    private final double[] probabilities; // probability of a task from -> to
+    private final int[] weights; // expected weight of a task from -> to
+    private final double[] deliveryProbabilities; // probability that the next task ends in the city
+    private final double[] distancesToAll; // sum of the distances from the city to every other city
+    private final int[] pairsByProbability; // pairs of distinct cities, the most probable first
+
+    private TopologyCache(Topology topology, TaskDistribution distribution) {
+        this.topology = topology;
+        this.distribution = distribution;
+        this.distances = DistanceTable.init(topology);
+        this.numCities = distances.numCities();
+
+        this.probabilities = new double[numCities * numCities];
+        this.weights = new int[numCities * numCities];
+        this.deliveryProbabilities = new double[numCities];
+        this.distancesToAll = new double[numCities];
+
+        List<Integer> pairs = new ArrayList<>();
+        for (City from : topology.cities()) {
+            for (City to : topology.cities()) {
+                int pair = pair(from, to);
+                probabilities[pair] = distribution.probability(from, to);
+                weights[pair] = distribution.weight(from, to);
+                deliveryProbabilities[to.id] += probabilities[pair] / numCities;
+                distancesToAll[from.id] += distances.distance(from, to);
+                if (from != to) {
+                    pairs.add(pair);
+                }
+            }
+        }
+        pairs.sort(Comparator.comparingDouble(pair -> -probabilities[pair]));
+        this.pairsByProbability = pairs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Build the cache of the given game (and the DistanceTable it relies on), it is kept as long as the topology
+     * and the task distribution do not change
+     */
+    public static synchronized TopologyCache init(Topology topology, TaskDistribution distribution) {
+        TopologyCache cache = TopologyCache.cache;
+        if (cache == null || cache.topology != topology || cache.distribution != distribution) {
+            cache = new TopologyCache(topology, distribution);
+            TopologyCache.cache = cache;
+        }
+        return cache;
+    }
+
+    public static TopologyCache get() {
+        TopologyCache cache = TopologyCache.cache;
+        if (cache == null) {
+            throw new IllegalStateException("TopologyCache.init must be called during setup");
+        }
+        return cache;
+    }
+
+    public int numCities() {
+        return numCities;
+    }
+
+    public DistanceTable distances() {
+        return distances;
+    }
+
+    public int pair(City from, City to) {
+        return from.id * numCities + to.id;
+    }
+
+    public int pair(Task task) {
+        return pair(task.pickupCity, task.deliveryCity);
+    }
+
+    public City pickupCity(int pair) {
+        return distances.city(pair / numCities);
+    }
+
+    public City deliveryCity(int pair) {
+        return distances.city(pair % numCities);
+    }
+
+    public double probability(int pair) {
+        return probabilities[pair];
+    }
+
+    public int weight(int pair) {
+        return weights[pair];
+    }
+
+    public double deliveryProbability(City city) {
+        return deliveryProbabilities[city.id];
+    }
+
+    public double distanceToAll(City city) {
+        return distancesToAll[city.id];
+    }
+
+    /**
+     * The n most probable pairs of distinct cities (fewer if the topology is small)
+     */
+    public int[] likelyPairs(int n) {
+        int[] likely = new int[Math.min(n, pairsByProbability.length)];
+        System.arraycopy(pairsByProbability, 0, likely, 0, likely.length);
+        return likely;
+    }
+}
@@ -5,76 +5,358 @@ import logist.simulation.Vehicle;
 import logist.task.Task;
 import logist.topology.Topology;
 import print.PrintHandler;
-import random.RandomHandler;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 import java.util.function.Function;
 
+/**
+ * Sequence of pickups and deliveries of one vehicle.
+ * <p>
+ * Actions are packed as (task.id << 1 | event) in an int array, with a parallel array holding the load of the
+ * vehicle after each action and an array giving the index of each action, so that copying a plan is three array
+ * copies and no action object is ever allocated. Checking the capacity or finding an action is then O(1).
+ */
 public class VehiclePlan {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_ACTION = -1;
 
     private final Vehicle vehicle;
-    private final List<BasicAction> actionSequence;
-    private int currentLoad;
+    private final DistanceTable distances;
+    private Task[] taskTable; // indexed by task id, shared between copies and copied before being overwritten
+    private int[] actions;
+    private int[] loads; // loads[i] is the load of the vehicle once the i-th action is done
+    private int[] positions; // positions[action] is the index of the action, -1 if it is not in the plan
+    private int length;
+    private double distance; // kept up to date by every mutation, so that getCost() does not walk the sequence
+    private long hash; // Zobrist hash of the successions of actions, kept up to date in O(1) as well
     private boolean canMutate;
     private boolean withChecks = false;
 
     public VehiclePlan(Vehicle vehicle) {
         this.vehicle = vehicle;
-        this.actionSequence = new ArrayList<>(200);
-        this.currentLoad = 0;
+        this.distances = DistanceTable.get();
+        this.taskTable = new Task[INITIAL_CAPACITY];
+        this.actions = new int[INITIAL_CAPACITY];
+        this.loads = new int[INITIAL_CAPACITY];
+        this.positions = new int[2 * INITIAL_CAPACITY];
+        Arrays.fill(positions, -1);
+        this.length = 0;
+        this.distance = 0;
+        this.hash = link(NO_ACTION, NO_ACTION);
         this.canMutate = true;
     }
 
-    private VehiclePlan(Vehicle vehicle, List<BasicAction> actionSequence, int currentLoad) {
-        this.vehicle = vehicle;
-        this.actionSequence = actionSequence;
-        this.currentLoad = currentLoad;
+    private VehiclePlan(VehiclePlan other) {
+        this.vehicle = other.vehicle;
+        this.distances = other.distances;
+        this.taskTable = other.taskTable;
+        this.length = other.length;
+        // leave room for one more task, this is what most neighbours need
+        this.actions = new int[length + 2];
+        this.loads = new int[length + 2];
+        System.arraycopy(other.actions, 0, this.actions, 0, length);
+        System.arraycopy(other.loads, 0, this.loads, 0, length);
+        this.positions = other.positions.clone();
+        this.distance = other.distance;
+        this.hash = other.hash;
         this.canMutate = true;
     }
 
     public VehiclePlan copy() {
-        return new VehiclePlan(this.vehicle, new ArrayList<>(this.actionSequence), this.currentLoad);
+        return new VehiclePlan(this);
     }
 
     public void setCanMutate(boolean canMutate) {
         this.canMutate = canMutate;
     }
 
-
     public double getCost() {
-        if (getLength() == 0) {
+        return distance * this.vehicle.costPerKm();
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Zobrist fingerprint of the sequence of actions, two plans with the same actions in the same order have the same
+     * one. It is the XOR of the keys of every action with the next one (the start and the end of the sequence
+     * included), so that a mutation or a move only changes the keys of the few links it breaks and makes.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    private static long link(int action, int next) {
+        return mix(((long) (action + 1) << 32) | (next + 1));
+    }
+
+    /**
+     * The i-th action, NO_ACTION before the first one and after the last one
+     */
+    private int actionAt(int i) {
+        return i < 0 || i >= length ? NO_ACTION : actions[i];
+    }
+
+    /**
+     * Key of the link into the i-th action (into the end of the sequence for i = length)
+     */
+    private long link(int i) {
+        return link(actionAt(i - 1), actionAt(i));
+    }
+
+    /**
+     * Keys of the links touched when swapping the actions at i and j (i < j), each one once
+     */
+    private long linksAround(int i, int j) {
+        long h = link(i) ^ link(j) ^ link(j + 1);
+        if (i + 1 != j) {
+            h ^= link(i + 1);
+        }
+        return h;
+    }
+
+    /**
+     * splitmix64 finalizer
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int encode(Task task, Event event) {
+        return task.id << 1 | event.ordinal();
+    }
+
+    private static boolean isLoad(int action) {
+        return (action & 1) == Event.LOAD.ordinal();
+    }
+
+    private Task taskOf(int action) {
+        return taskTable[action >> 1];
+    }
+
+    private int weightOf(int action) {
+        int weight = taskOf(action).weight;
+        return isLoad(action) ? weight : -weight;
+    }
+
+    private int loadAfter(int i) {
+        return i < 0 ? 0 : loads[i];
+    }
+
+    private void register(Task task) {
+        if ((task.id << 1 | 1) >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(2 * task.id + 2, 2 * oldLength));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+        if (task.id >= taskTable.length) {
+            taskTable = Arrays.copyOf(taskTable, Math.max(task.id + 1, 2 * taskTable.length));
+        } else if (taskTable[task.id] == task) {
+            return;
+        } else { // the table may be shared with copies used by other threads, it is never written in place
+            taskTable = taskTable.clone();
+        }
+        taskTable[task.id] = task;
+    }
+
+    private int indexOf(int action) {
+        return action < positions.length ? positions[action] : -1;
+    }
+
+    private Topology.City cityAt(int i) {
+        if (i < 0) {
+            return vehicle.getCurrentCity();
+        }
+        return cityOf(actions[i]);
+    }
+
+    private Topology.City cityOf(int action) {
+        Task task = taskOf(action);
+        return isLoad(action) ? task.pickupCity : task.deliveryCity;
+    }
+
+    /**
+     * City of the i-th action if the actions at the given positions were replaced
+     */
+    private Topology.City cityAt(int i, int[] positions, int[] replacements) {
+        for (int k = 0; k < positions.length; k++) {
+            if (positions[k] == i) {
+                return cityOf(replacements[k]);
+            }
+        }
+        return cityAt(i);
+    }
+
+    /**
+     * The i-th action if the actions at the given positions were replaced
+     */
+    private int actionAt(int i, int[] positions, int[] replacements) {
+        for (int k = 0; k < positions.length; k++) {
+            if (positions[k] == i) {
+                return replacements[k];
+            }
+        }
+        return actionAt(i);
+    }
+
+    /**
+     * Distance travelled to reach the i-th action (0 if there is no such action)
+     */
+    private double edge(int i) {
+        if (i < 0 || i >= length) {
             return 0;
         }
-        double cost = 0;
-        Topology.City lastCity = vehicle.getCurrentCity();
-        for (BasicAction action : actionSequence) {
-            if (action.event == Event.LOAD) {
-                cost += lastCity.distanceTo(action.task.pickupCity);
-                lastCity = action.task.pickupCity;
-            } else {
-                cost += lastCity.distanceTo(action.task.deliveryCity);
-                lastCity = action.task.deliveryCity;
+        return distances.distance(cityAt(i - 1), cityAt(i));
+    }
+
+    /**
+     * Sum of the edges touched when swapping the actions at i and j (i < j)
+     */
+    private double edgesAround(int i, int j) {
+        double d = edge(i) + edge(j) + edge(j + 1);
+        if (i + 1 != j) {
+            d += edge(i + 1);
+        }
+        return d;
+    }
+
+    private void updateLoads(int from, int to) {
+        for (int k = from; k <= to; k++) {
+            loads[k] = loadAfter(k - 1) + weightOf(actions[k]);
+        }
+    }
+
+    private void insertAction(int i, int action) {
+        if (length == actions.length) {
+            actions = Arrays.copyOf(actions, 2 * length + 2);
+            loads = Arrays.copyOf(loads, 2 * length + 2);
+        }
+        distance -= edge(i);
+        hash ^= link(i) ^ link(actionAt(i - 1), action) ^ link(action, actionAt(i));
+        System.arraycopy(actions, i, actions, i + 1, length - i);
+        System.arraycopy(loads, i, loads, i + 1, length - i);
+        actions[i] = action;
+        length++;
+        int weight = weightOf(action);
+        loads[i] = loadAfter(i - 1) + weight;
+        positions[action] = i;
+        for (int k = i + 1; k < length; k++) {
+            loads[k] += weight;
+            positions[actions[k]] = k;
+        }
+        distance += edge(i) + edge(i + 1);
+    }
+
+    private int removeAction(int i) {
+        int action = actions[i];
+        distance -= edge(i) + edge(i + 1);
+        hash ^= link(i) ^ link(i + 1) ^ link(actionAt(i - 1), actionAt(i + 1));
+        int weight = weightOf(action);
+        System.arraycopy(actions, i + 1, actions, i, length - i - 1);
+        System.arraycopy(loads, i + 1, loads, i, length - i - 1);
+        length--;
+        positions[action] = -1;
+        for (int k = i; k < length; k++) {
+            loads[k] -= weight;
+            positions[actions[k]] = k;
+        }
+        distance += edge(i);
+        return action;
+    }
+
+    private void swapActions(int i, int j) {
+        if (i > j) {
+            swapActions(j, i);
+            return;
+        }
+        double before = edgesAround(i, j);
+        hash ^= linksAround(i, j);
+        int action = actions[i];
+        actions[i] = actions[j];
+        actions[j] = action;
+        positions[actions[i]] = i;
+        positions[actions[j]] = j;
+        updateLoads(i, j - 1);
+        distance += edgesAround(i, j) - before;
+        hash ^= linksAround(i, j);
+    }
+
+    /**
+     * Distance change if the actions at the given positions were replaced by the given ones (a permutation of
+     * them), without changing the plan: only the edges into and out of these positions are walked
+     */
+    private double replacementDistance(int[] positions, int[] replacements) {
+        double d = 0;
+        for (int k = 0; k < positions.length; k++) {
+            for (int e = positions[k]; e <= positions[k] + 1 && e < length; e++) {
+                if (e != positions[k] + 1 || !contains(positions, e)) { // the edge into a replaced position is done once
+                    d += distances.distance(cityAt(e - 1, positions, replacements), cityAt(e, positions, replacements))
+                            - edge(e);
+                }
             }
         }
-        cost *= this.vehicle.costPerKm();
-        return cost;
+        return d;
     }
 
-    public int getLength() {
-        return actionSequence.size();
+    /**
+     * Hash change if the actions at the given positions were replaced by the given ones, walking the same links as
+     * replacementDistance
+     */
+    private long replacementHash(int[] positions, int[] replacements) {
+        long h = 0;
+        for (int k = 0; k < positions.length; k++) {
+            for (int e = positions[k]; e <= positions[k] + 1; e++) {
+                if (e != positions[k] + 1 || !contains(positions, e)) {
+                    h ^= link(actionAt(e - 1, positions, replacements), actionAt(e, positions, replacements)) ^ link(e);
+                }
+            }
+        }
+        return h;
     }
 
-    private boolean isOverloaded() {
-        int load = 0;
-        for (BasicAction action : actionSequence) {
-            if (action.event == Event.LOAD) {
-                load += action.task.weight;
-            } else {
-                load -= action.task.weight;
+    private static boolean contains(int[] positions, int i) {
+        for (int position : positions) {
+            if (position == i) {
+                return true;
             }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the loads stay within the capacity if the actions at the given positions were replaced by the given
+     * ones (a permutation of them), the loads after the last of them do not change
+     */
+    private boolean fitsWith(int[] positions, int[] replacements) {
+        int first = length;
+        int last = -1;
+        for (int position : positions) {
+            first = Math.min(first, position);
+            last = Math.max(last, position);
+        }
+        int load = loadAfter(first - 1);
+        for (int i = first; i <= last; i++) {
+            int action = actions[i];
+            for (int k = 0; k < positions.length; k++) {
+                if (positions[k] == i) {
+                    action = replacements[k];
+                }
+            }
+            load += weightOf(action);
             if (load > vehicle.capacity()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isOverloaded() {
+        for (int i = 0; i < length; i++) {
+            if (loads[i] > vehicle.capacity()) {
                 return true;
             }
         }
@@ -86,9 +368,12 @@ public class VehiclePlan {
             PrintHandler.println("[FAIL] vehicle is overloaded");
             return true;
         }
-        for (int i = 0; i < actionSequence.size(); i++) {
-            Task task = actionSequence.get(i).task;
-            if (actionSequence.indexOf(new BasicAction(Event.DROP, task)) < actionSequence.indexOf(new BasicAction(Event.LOAD, task))) {
+        boolean[] loaded = new boolean[taskTable.length];
+        for (int i = 0; i < length; i++) {
+            int taskId = actions[i] >> 1;
+            if (isLoad(actions[i])) {
+                loaded[taskId] = true;
+            } else if (!loaded[taskId]) {
                 PrintHandler.println("[FAIL] tasks not in right order");
                 return true;
             }
@@ -110,145 +395,313 @@ public class VehiclePlan {
 
     public boolean addLoadAction(Task task) {
         checkMutation();
-        if (currentLoad + task.weight > vehicle.capacity()) {
+        if (loadAfter(length - 1) + task.weight > vehicle.capacity()) {
             return false;
         } else {
-            currentLoad += task.weight;
-            actionSequence.add(new BasicAction(Event.LOAD, task));
+            register(task);
+            insertAction(length, encode(task, Event.LOAD));
             return true;
         }
     }
 
-    public void addTaskRandomly(Task task) {
-        checkMutation();
-        checkValidity();
-        int load = 0;
-        boolean moved = false;
-        boolean dropped = false;
-        int numOfActions = actionSequence.size();
-        for (int i = 0; i < numOfActions; i++) {
-            BasicAction action = actionSequence.get(i);
-            if (action.event == Event.LOAD) {
-                load += action.task.weight;
-            } else {
-                load -= action.task.weight;
+    /**
+     * Cheapest way to put a task in this plan: where to insert its pickup and its delivery and what it costs
+     */
+    public static class Insertion {
+        public final double cost;
+        public final int pickupIndex; // index of the pickup once inserted
+        public final int deliveryIndex; // index of the delivery once both are inserted
+
+        private Insertion(double cost, int pickupIndex, int deliveryIndex) {
+            this.cost = cost;
+            this.pickupIndex = pickupIndex;
+            this.deliveryIndex = deliveryIndex;
+        }
+    }
+
+    /**
+     * Distance added by visiting a city between the (i-1)-th and the i-th action
+     */
+    private double detour(int i, Topology.City city) {
+        Topology.City previous = cityAt(i - 1);
+        if (i >= length) {
+            return distances.distance(previous, city);
+        }
+        Topology.City next = cityAt(i);
+        return distances.distance(previous, city) + distances.distance(city, next) - distances.distance(previous, next);
+    }
+
+    /**
+     * Try every pickup/delivery position pair that respects the capacity (checked with the prefix loads), without
+     * changing the plan
+     *
+     * @return the cheapest insertion, or null if the task cannot fit anywhere
+     */
+    public Insertion cheapestInsertion(Task task) {
+        double bestDistance = Double.MAX_VALUE;
+        int bestPickup = -1;
+        int bestDelivery = -1;
+        for (int i = 0; i <= length; i++) {
+            double maxLoad = loadAfter(i - 1);
+            if (maxLoad + task.weight > vehicle.capacity()) {
+                continue;
             }
-            if ((RandomHandler.get().nextDouble() < 1. / numOfActions) && !moved && load + task.weight <= vehicle.capacity()) {
-                moved = true;
-                load += task.weight;
-                actionSequence.add(i + 1, new BasicAction(Event.LOAD, task));
-            } else if (moved && !action.task.equals(task)) {
-                if (load > vehicle.capacity()) {
-                    actionSequence.add(i, new BasicAction(Event.DROP, task));
-                    dropped = true;
-                    break;
-                } else if (RandomHandler.get().nextDouble() < 1. / numOfActions) {
-                    actionSequence.add(i + 1, new BasicAction(Event.DROP, task));
-                    dropped = true;
+            // delivery right after the pickup
+            double pickupDetour = detour(i, task.pickupCity);
+            double direct = distances.distance(cityAt(i - 1), task.pickupCity)
+                    + distances.distance(task.pickupCity, task.deliveryCity)
+                    + (i < length ? distances.distance(task.deliveryCity, cityAt(i)) - edge(i) : 0);
+            if (direct < bestDistance) {
+                bestDistance = direct;
+                bestPickup = i;
+                bestDelivery = i;
+            }
+            // delivery before the j-th action, the load is increased for all the actions in between
+            for (int j = i + 1; j <= length; j++) {
+                maxLoad = Math.max(maxLoad, loads[j - 1]);
+                if (maxLoad + task.weight > vehicle.capacity()) {
                     break;
                 }
+                double d = pickupDetour + detour(j, task.deliveryCity);
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    bestPickup = i;
+                    bestDelivery = j;
+                }
             }
         }
-        if (!moved) {
-            actionSequence.add(new BasicAction(Event.LOAD, task));
+        if (bestPickup < 0) {
+            return null;
         }
-        if (!dropped) {
-            actionSequence.add(new BasicAction(Event.DROP, task));
+        return new Insertion(bestDistance * vehicle.costPerKm(), bestPickup, bestDelivery + 1);
+    }
+
+    /**
+     * Distance added by picking up the task before the i-th action and delivering it before the j-th one (i <= j)
+     */
+    private double insertionDistance(Task task, int i, int j) {
+        if (i == j) {
+            return distances.distance(cityAt(i - 1), task.pickupCity)
+                    + distances.distance(task.pickupCity, task.deliveryCity)
+                    + (i < length ? distances.distance(task.deliveryCity, cityAt(i)) - edge(i) : 0);
         }
-        checkValidity();
+        return detour(i, task.pickupCity) + detour(j, task.deliveryCity);
     }
 
-    public boolean advanceAction(int i) {
+    /**
+     * Random insertion respecting the capacity, without changing the plan: each action has a probability 1 / length
+     * of being the one the task is picked up after, then of being the one it is delivered after (it is delivered
+     * earlier if carrying it would overload the vehicle). Both are at the end if no action is drawn.
+     */
+    public Insertion randomInsertion(Task task, SplittableRandom random) {
+        int pickup = length;
+        for (int i = 0; i < length; i++) {
+            if (random.nextDouble() < 1. / length && loads[i] + task.weight <= vehicle.capacity()) {
+                pickup = i + 1;
+                break;
+            }
+        }
+        int delivery = length;
+        for (int j = pickup; j < length; j++) {
+            if (loads[j] + task.weight > vehicle.capacity()) {
+                delivery = j;
+                break;
+            } else if (random.nextDouble() < 1. / length) {
+                delivery = j + 1;
+                break;
+            }
+        }
+        return new Insertion(insertionDistance(task, pickup, delivery) * vehicle.costPerKm(), pickup, delivery + 1);
+    }
+
+    /**
+     * Hash change of inserting the task, without changing the plan
+     */
+    public long insertionHash(Task task, Insertion insertion) {
+        int load = encode(task, Event.LOAD);
+        int drop = encode(task, Event.DROP);
+        int i = insertion.pickupIndex;
+        int j = insertion.deliveryIndex - 1; // the delivery goes before the j-th action of the plan as it is now
+        if (i == j) {
+            return link(i) ^ link(actionAt(i - 1), load) ^ link(load, drop) ^ link(drop, actionAt(i));
+        }
+        return link(i) ^ link(actionAt(i - 1), load) ^ link(load, actionAt(i))
+                ^ link(j) ^ link(actionAt(j - 1), drop) ^ link(drop, actionAt(j));
+    }
+
+    public void insertTask(Task task, Insertion insertion) {
         checkMutation();
+        register(task);
+        insertAction(insertion.pickupIndex, encode(task, Event.LOAD));
+        insertAction(insertion.deliveryIndex, encode(task, Event.DROP));
         checkValidity();
-        if (i == 0 || i > actionSequence.size()) {
+    }
+
+    /**
+     * Whether the i-th action can be done before the previous one: a delivery not right after its pickup, or a
+     * pickup which does not overload the vehicle earlier. O(1): only the load between the two actions changes.
+     */
+    public boolean canAdvanceAction(int i) {
+        if (i <= 0 || i >= length) {
             return false;
         }
-        BasicAction action = actionSequence.get(i);
-        if (action.event == Event.DROP) {
-            if (actionSequence.get(i - 1).task != action.task) {
-                Collections.swap(actionSequence, i, i - 1);
-                checkValidity();
-                return true;
-            } else {
-                return false;
-            }
-        } else {
-            int load = 0;
-            for (int j = 0; j < i - 1; j++) {
-                BasicAction action2 = actionSequence.get(j);
-                if (action2.event == Event.DROP) {
-                    load -= action2.task.weight;
-                } else {
-                    load += action2.task.weight;
-                }
-            }
-            if (load + action.task.weight <= vehicle.capacity()) {
-                Collections.swap(actionSequence, i, i - 1);
-                checkValidity();
-                return true;
-            }
+        int action = actions[i];
+        if (!isLoad(action)) {
+            return positions[action ^ 1] != i - 1;
+        }
+        return loadAfter(i - 2) + weightOf(action) <= vehicle.capacity();
+    }
 
+    /**
+     * Whether the i-th action can be done after the next one: a pickup not right before its delivery, or a delivery
+     * which does not overload the vehicle later. O(1) as well.
+     */
+    public boolean canPostponeAction(int i) {
+        if (i < 0 || i >= length - 1) {
             return false;
         }
+        int action = actions[i];
+        if (isLoad(action)) {
+            return positions[action ^ 1] != i + 1;
+        }
+        return loadAfter(i - 1) + weightOf(actions[i + 1]) <= vehicle.capacity();
     }
 
-    public boolean postponeAction(int i) {
+    /**
+     * Cost change of doing the i-th action after the next one (or equivalently the next one before it), without
+     * changing the plan
+     */
+    public double swapCost(int i) {
+        Topology.City previous = cityAt(i - 1);
+        Topology.City first = cityAt(i);
+        Topology.City second = cityAt(i + 1);
+        // edge by edge, so that swapping two actions in the same city costs exactly 0
+        double d = (distances.distance(previous, second) - edge(i))
+                + (distances.distance(second, first) - edge(i + 1))
+                + (shortcut(i, i + 2) - edge(i + 2));
+        return d * vehicle.costPerKm();
+    }
+
+    /**
+     * Hash change of doing the i-th action after the next one, without changing the plan
+     */
+    public long swapHash(int i) {
+        int previous = actionAt(i - 1);
+        int first = actionAt(i);
+        int second = actionAt(i + 1);
+        int next = actionAt(i + 2);
+        return link(previous, first) ^ link(first, second) ^ link(second, next)
+                ^ link(previous, second) ^ link(second, first) ^ link(first, next);
+    }
+
+    public boolean advanceAction(int i) {
         checkMutation();
         checkValidity();
-        if (i >= actionSequence.size() - 1) {
+        if (!canAdvanceAction(i)) {
             return false;
         }
-        BasicAction action = actionSequence.get(i);
-        if (action.event == Event.LOAD) {
-            if (actionSequence.get(i + 1).task != action.task) {
-                Collections.swap(actionSequence, i, i + 1);
-                checkValidity();
-                return true;
-            } else {
-                return false;
-            }
-        } else {
-            int load = 0;
-            for (int j = 0; j <= i + 1; j++) {
-                BasicAction action2 = actionSequence.get(j);
-                if (action2.event == Event.DROP) {
-                    load -= action2.task.weight;
-                } else {
-                    load += action2.task.weight;
-                }
-            }
-            if (load + action.task.weight <= vehicle.capacity()) {
-                Collections.swap(actionSequence, i, i + 1);
-                checkValidity();
-                return true;
-            }
+        swapActions(i - 1, i);
+        checkValidity();
+        return true;
+    }
 
+    public boolean postponeAction(int i) {
+        checkMutation();
+        checkValidity();
+        if (!canPostponeAction(i)) {
             return false;
         }
+        swapActions(i, i + 1);
+        checkValidity();
+        return true;
     }
 
     public boolean addDropAction(Task task) {
         checkMutation();
-        if (actionSequence.contains(new BasicAction(Event.LOAD, task))) {
-            currentLoad -= task.weight;
-            actionSequence.add(new BasicAction(Event.DROP, task));
+        if (contains(task)) {
+            insertAction(length, encode(task, Event.DROP));
             return true;
         }
         return false;
     }
 
-    public Task takeOutOneTask() {
+    public boolean contains(Task task) {
+        return task.id < taskTable.length && taskTable[task.id] == task && indexOf(encode(task, Event.LOAD)) >= 0;
+    }
+
+    /**
+     * Give the pickup and the delivery of a task to another task between the same cities and of the same weight
+     * (a speculative task replaced by the real one), so that neither the cost nor the loads change
+     */
+    public boolean replaceTask(Task oldTask, Task newTask) {
         checkMutation();
-        checkValidity();
-        int idx = RandomHandler.get().nextInt(actionSequence.size());
-        BasicAction action = actionSequence.get(idx);
-        actionSequence.remove(idx);
-        if (!actionSequence.remove(new BasicAction(action.event == Event.DROP ? Event.LOAD : Event.DROP, action.task))) {
-            PrintHandler.println("[FAIL] should remove DROP as well");
+        if (oldTask.pickupCity != newTask.pickupCity || oldTask.deliveryCity != newTask.deliveryCity
+                || oldTask.weight != newTask.weight || !contains(oldTask)) {
+            return false;
+        }
+        int load = indexOf(encode(oldTask, Event.LOAD));
+        int drop = indexOf(encode(oldTask, Event.DROP));
+        register(newTask);
+        hash ^= linksAround(load, drop);
+        positions[actions[load]] = -1;
+        positions[actions[drop]] = -1;
+        actions[load] = encode(newTask, Event.LOAD);
+        actions[drop] = encode(newTask, Event.DROP);
+        positions[actions[load]] = load;
+        positions[actions[drop]] = drop;
+        hash ^= linksAround(load, drop);
+        return true;
+    }
+
+    /**
+     * Task of an action drawn uniformly
+     */
+    public Task randomTask(SplittableRandom random) {
+        return taskOf(actions[random.nextInt(length)]);
+    }
+
+    /**
+     * Cost change of removing the pickup and the delivery of a task of this plan, without changing the plan
+     */
+    public double removalCost(Task task) {
+        int pickup = indexOf(encode(task, Event.LOAD));
+        int delivery = indexOf(encode(task, Event.DROP));
+        double d;
+        if (delivery == pickup + 1) {
+            d = shortcut(pickup - 1, pickup + 2) - edge(pickup) - edge(pickup + 1) - edge(pickup + 2);
+        } else {
+            d = shortcut(pickup - 1, pickup + 1) - edge(pickup) - edge(pickup + 1)
+                    + shortcut(delivery - 1, delivery + 1) - edge(delivery) - edge(delivery + 1);
+        }
+        return d * vehicle.costPerKm();
+    }
+
+    /**
+     * Hash change of removing the pickup and the delivery of a task of this plan, without changing the plan
+     */
+    public long removalHash(Task task) {
+        int pickup = indexOf(encode(task, Event.LOAD));
+        int delivery = indexOf(encode(task, Event.DROP));
+        if (delivery == pickup + 1) {
+            return link(pickup) ^ link(pickup + 1) ^ link(pickup + 2) ^ link(actionAt(pickup - 1), actionAt(pickup + 2));
         }
+        return link(pickup) ^ link(pickup + 1) ^ link(actionAt(pickup - 1), actionAt(pickup + 1))
+                ^ link(delivery) ^ link(delivery + 1) ^ link(actionAt(delivery - 1), actionAt(delivery + 1));
+    }
+
+    /**
+     * Distance from the i-th action straight to the j-th one (0 if there is no j-th action)
+     */
+    private double shortcut(int i, int j) {
+        return j < length ? distances.distance(cityAt(i), cityAt(j)) : 0;
+    }
+
+    public void removeTask(Task task) {
+        checkMutation();
+        checkValidity();
+        removeAction(indexOf(encode(task, Event.DROP)));
+        removeAction(indexOf(encode(task, Event.LOAD)));
         checkValidity();
-        return action.task;
     }
 
     public Plan getPlan() {
@@ -256,69 +709,79 @@ public class VehiclePlan {
     }
 
     public Plan getPlan(Function<Task, Task> oldToNewTasks) {
-        if (actionSequence.isEmpty()) {
+        if (length == 0) {
             return Plan.EMPTY;
         }
         Topology.City currentCity = this.vehicle.getCurrentCity();
         Plan plan = new Plan(currentCity);
 
-        for (BasicAction action : actionSequence) {
-            if (action.event == Event.LOAD) {
-                if (action.task.pickupCity != currentCity) {
-                    for (Topology.City city : currentCity.pathTo(action.task.pickupCity)) {
-                        plan.appendMove(city);
-                    }
-                }
-                currentCity = action.task.pickupCity;
-                plan.appendPickup(oldToNewTasks.apply(action.task));
+        for (int i = 0; i < length; i++) {
+            Topology.City nextCity = cityAt(i);
+            while (currentCity != nextCity) {
+                currentCity = distances.nextCity(currentCity, nextCity);
+                plan.appendMove(currentCity);
+            }
+            if (isLoad(actions[i])) {
+                plan.appendPickup(oldToNewTasks.apply(taskOf(actions[i])));
             } else {
-                if (action.task.deliveryCity != currentCity) {
-                    for (Topology.City city : currentCity.pathTo(action.task.deliveryCity)) {
-                        plan.appendMove(city);
-                    }
-                }
-                currentCity = action.task.deliveryCity;
-                plan.appendDelivery(oldToNewTasks.apply(action.task));
+                plan.appendDelivery(oldToNewTasks.apply(taskOf(actions[i])));
             }
         }
         return plan;
     }
 
-    public void swapTwoTasks() {
+    /**
+     * Exchange of the places of two tasks: the pickup of each one where the pickup of the other was, and the same for
+     * the deliveries
+     */
+    public static class TaskSwap {
+        public final double cost; // cost change
+        private final int[] positions;
+        private final int[] replacements;
+
+        private TaskSwap(double cost, int[] positions, int[] replacements) {
+            this.cost = cost;
+            this.positions = positions;
+            this.replacements = replacements;
+        }
+    }
+
+    /**
+     * Swap of two tasks drawn among the tasks of the actions, without changing the plan
+     *
+     * @return the swap, or null if it would overload the vehicle
+     */
+    public TaskSwap randomTaskSwap(SplittableRandom random) {
+        int task1 = actions[random.nextInt(length)] >> 1;
+        int task2 = task1;
+        while (task1 == task2) {
+            task2 = actions[random.nextInt(length)] >> 1;
+        }
+        int load1 = indexOf(task1 << 1 | Event.LOAD.ordinal());
+        int drop1 = indexOf(task1 << 1 | Event.DROP.ordinal());
+        int load2 = indexOf(task2 << 1 | Event.LOAD.ordinal());
+        int drop2 = indexOf(task2 << 1 | Event.DROP.ordinal());
+        int[] positions = {load1, drop1, load2, drop2};
+        int[] replacements = {actions[load2], actions[drop2], actions[load1], actions[drop1]};
+        if (!fitsWith(positions, replacements)) {
+            return null;
+        }
+        return new TaskSwap(replacementDistance(positions, replacements) * vehicle.costPerKm(), positions,
+                replacements);
+    }
+
+    /**
+     * Hash change of the swap, without changing the plan
+     */
+    public long swapHash(TaskSwap swap) {
+        return replacementHash(swap.positions, swap.replacements);
+    }
+
+    public void swapTasks(TaskSwap swap) {
         checkMutation();
         checkValidity();
-        if (actionSequence.size() < 4) {
-            PrintHandler.println("[FAIL] cannot swap two tasks if less are present");
-        }
-
-        Task task1 = actionSequence.get(RandomHandler.get().nextInt(actionSequence.size())).task;
-        Task task2 = task1;
-        while (task1.equals(task2)) {
-            task2 = actionSequence.get(RandomHandler.get().nextInt(actionSequence.size())).task;
-        }
-        int l1 = -1,
-                l2 = -1,
-                d1 = -1,
-                d2 = -1;
-        int index = 0;
-        for (BasicAction action : actionSequence) {
-            if (action.task.equals(task1)) {
-                if (action.event.equals(Event.LOAD)) {
-                    l1 = index;
-                } else {
-                    d1 = index;
-                }
-            } else if (action.task.equals(task2)) {
-                if (action.event.equals(Event.LOAD)) {
-                    l2 = index;
-                } else {
-                    d2 = index;
-                }
-            }
-            index++;
-        }
-        Collections.swap(actionSequence, l1, l2);
-        Collections.swap(actionSequence, d1, d2);
+        swapActions(swap.positions[0], swap.positions[2]);
+        swapActions(swap.positions[1], swap.positions[3]);
         checkValidity();
     }
 
@@ -10,12 +10,19 @@ public class PrintHandler {
         _verbosityLevel = verbosityLevel;
     }
 
+    /**
+     * Whether messages of the given level are printed, to avoid building the ones that are costly for nothing
+     */
+    public static boolean isEnabled(int verbosityLevel) {
+        return verbosityLevel <= _verbosityLevel;
+    }
+
     public static void println(Object o) {
         println(o, 0);
     }
 
     public static void println(Object o, int verbosityLevel) {
-        if (verbosityLevel <= _verbosityLevel) {
+        if (isEnabled(verbosityLevel)) {
             System.out.println(o);
         }
     }
@@ -1,22 +1,38 @@
 package random;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
- * Simple way to share a pseudo random generator between all classes
+ * Simple way to share pseudo random generators between all classes
+ * <p>
+ * All generators derive from one master seed: get() returns the generator of the calling thread, and split() hands
+ * out an independent stream to a search context (a planner, a SLS worker...). Generators are never shared between
+ * threads, so concurrent searches do not contend and stay reproducible.
  */
 public class RandomHandler {
     private static final long DEFAULT_SEED = 1;
-    private static Random r = new Random(DEFAULT_SEED);
+    private static SplittableRandom master = new SplittableRandom(DEFAULT_SEED);
+    private static ThreadLocal<SplittableRandom> local = ThreadLocal.withInitial(RandomHandler::split);
 
     private RandomHandler() {
     }
 
-    public static void set(long seed) {
-        r = new Random(seed);
+    public static synchronized void set(long seed) {
+        master = new SplittableRandom(seed);
+        local = ThreadLocal.withInitial(RandomHandler::split);
     }
 
-    public static Random get() {
-        return r;
+    /**
+     * Generator of the calling thread
+     */
+    public static SplittableRandom get() {
+        return local.get();
+    }
+
+    /**
+     * New independent generator, to be used by one search context only
+     */
+    public static synchronized SplittableRandom split() {
+        return master.split();
     }
 }
@@ -0,0 +1,106 @@
+package time;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Point in time, on the System.nanoTime clock, after which a search must stop.
+ * <p>
+ * hasExpired() only reads the clock once every CHECK_INTERVAL calls so that it can be called on every iteration of a
+ * tight loop, and stays expired once it has been seen expired. The call counter is not shared: every thread must use
+ * its own copy(). cancel() makes a deadline and all its copies expire early, from any thread.
+ */
+public class Deadline {
+    private static final int CHECK_INTERVAL = 64; // calls to hasExpired() between two reads of the clock
+
+    private final long end;
+    private final AtomicBoolean cancelled; // shared with the copies
+    private int calls;
+    private boolean expired;
+
+    private Deadline(long end, AtomicBoolean cancelled) {
+        this.end = end;
+        this.cancelled = cancelled;
+        this.calls = 0;
+        this.expired = false;
+    }
+
+    private Deadline(long end) {
+        this(end, new AtomicBoolean(false));
+    }
+
+    /**
+     * Deadline timeLimit ms from now
+     */
+    public static Deadline in(long timeLimit) {
+        return new Deadline(System.nanoTime() + timeLimit * 1_000_000);
+    }
+
+    /**
+     * Deadline at the given value of System.nanoTime()
+     */
+    public static Deadline at(long nanoTime) {
+        return new Deadline(nanoTime);
+    }
+
+    /**
+     * Same deadline, with its own call counter
+     */
+    public Deadline copy() {
+        Deadline copy = new Deadline(end, cancelled);
+        copy.expired = expired;
+        return copy;
+    }
+
+    /**
+     * Same deadline, which can be cancelled without cancelling this one (and is not cancelled with it)
+     */
+    public Deadline detachedCopy() {
+        Deadline copy = new Deadline(end, new AtomicBoolean(cancelled.get()));
+        copy.expired = expired;
+        return copy;
+    }
+
+    /**
+     * Amortised check, the answer can be late by CHECK_INTERVAL - 1 calls
+     */
+    public boolean hasExpired() {
+        if (expired) {
+            return true;
+        }
+        if (calls++ % CHECK_INTERVAL != 0) {
+            return false;
+        }
+        return hasExpiredNow();
+    }
+
+    /**
+     * Make this deadline and all its copies expire now, the searches using them see it at their next check
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Exact check, reads the clock
+     */
+    public boolean hasExpiredNow() {
+        if (!expired && (cancelled.get() || System.nanoTime() - end >= 0)) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    /**
+     * Time left in ms, 0 once expired
+     */
+    public long remainingMillis() {
+        if (hasExpiredNow()) {
+            return 0;
+        }
+        return Math.max(0, (end - System.nanoTime()) / 1_000_000);
+    }
+}
@@ -0,0 +1,133 @@
+package time;
+
+import print.PrintHandler;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Timeout of one kind of call from logist (a bid or the final plan) together with the safety margin we keep before it.
+ * <p>
+ * Every call is wrapped in start() / end(). end() measures how long the call went on after its deadline (the work
+ * done once the search has stopped, e.g. toLogistPlans, and the late clock checks) and how much of the call was spent
+ * in garbage collection. The margin is then set to a multiple of the worst of both seen so far, so that it starts
+ * conservative and shrinks to what this machine actually needs.
+ */
+public class TimeBudget {
+    private static final double SAFETY_FACTOR = 2.0;
+
+    private final String name;
+    private final long timeout;
+    private final long minMargin;
+    private long margin;
+
+    private long startTime; // System.nanoTime()
+    private long gcTimeAtStart;
+    private long deadlineOffset; // ms between start and the deadline given for this call
+    private long reserve; // ms of known work after the deadline, not counted as overhead
+    private long searchEndTime; // System.nanoTime() when the search returned, 0 if not reported
+
+    private long worstOverhead = 0;
+    private long worstGcPause = 0;
+    private int numCalls = 0;
+
+    /**
+     * @param timeout       time given by logist for each call, in ms
+     * @param initialMargin margin kept until the first call has been measured, in ms
+     * @param minMargin     margin never goes below, it covers what we cannot measure (e.g. logist's own overhead)
+     */
+    public TimeBudget(String name, long timeout, long initialMargin, long minMargin) {
+        this.name = name;
+        this.timeout = timeout;
+        this.minMargin = minMargin;
+        this.margin = Math.max(minMargin, initialMargin);
+    }
+
+    /**
+     * Take the overheads measured by another budget as our own, until we have measured some
+     */
+    public void learnFrom(TimeBudget other) {
+        if (numCalls == 0 && other.numCalls > 0) {
+            worstOverhead = other.worstOverhead;
+            worstGcPause = other.worstGcPause;
+            margin = computeMargin();
+        }
+    }
+
+    public void start() {
+        startTime = System.nanoTime();
+        gcTimeAtStart = gcTime();
+        deadlineOffset = timeout - margin;
+        reserve = 0;
+        searchEndTime = 0;
+    }
+
+    /**
+     * Deadline of the current call
+     */
+    public Deadline deadline() {
+        return deadline(0);
+    }
+
+    /**
+     * Deadline of the current call, keeping reserve ms on top of the margin for work we know comes after the search
+     */
+    public Deadline deadline(long reserve) {
+        this.deadlineOffset = Math.max(0, timeout - margin - reserve);
+        this.reserve = reserve;
+        return Deadline.at(startTime + deadlineOffset * 1_000_000);
+    }
+
+    /**
+     * The search of the current call returned, what comes next (e.g. toLogistPlans) is measured against the reserve
+     */
+    public void searchDone() {
+        searchEndTime = System.nanoTime();
+    }
+
+    public void end() {
+        long now = System.nanoTime();
+        long elapsed = (now - startTime) / 1_000_000;
+        long overhead = Math.max(0, elapsed - deadlineOffset - reserve);
+        long gcPause = gcTime() - gcTimeAtStart;
+
+        numCalls += 1;
+        worstOverhead = Math.max(worstOverhead, overhead);
+        worstGcPause = Math.max(worstGcPause, gcPause);
+
+        long newMargin = computeMargin();
+        String afterSearch = searchEndTime == 0 ? ""
+                : ", after search " + (now - searchEndTime) / 1_000_000 + "ms of " + reserve + "ms reserved";
+        PrintHandler.println("[TIM] " + name + " took " + elapsed + "ms (overhead " + overhead + "ms, gc " + gcPause
+                + "ms" + afterSearch + "), margin: " + margin + " -> " + newMargin + "ms", 2);
+        margin = newMargin;
+    }
+
+    private long computeMargin() {
+        long wanted = minMargin + (long) (SAFETY_FACTOR * (worstOverhead + worstGcPause));
+        return Math.min(wanted, timeout / 2);
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public long getMargin() {
+        return margin;
+    }
+
+    /**
+     * Time a call can use for its search with the current margin, in ms
+     */
+    public long available() {
+        return Math.max(0, timeout - margin);
+    }
+
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,4 @@
+# the modules have to be built first (bin/ of each module), the JMH jars are taken from the local maven repository
+M2=${M2_REPO:-~/.m2/repository}
+JMH=$M2/org/openjdk/jmh/jmh-core/1.21/jmh-core-1.21.jar:$M2/net/sf/jopt-simple/jopt-simple/4.6/jopt-simple-4.6.jar:$M2/org/apache/commons/commons-math3/3.2/commons-math3-3.2.jar
+java -cp bin:../auction/bin:../deliberative/bin:../reactive/bin:../logist/logist.jar:$JMH org.openjdk.jmh.Main -prof gc "$@"
@@ -0,0 +1,49 @@
+package bench;
+
+import algo.astar.AStar;
+import algo.astar.Heuristic;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import models.DistanceTable;
+import models.VehiclePlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import random.RandomHandler;
+
+import java.util.List;
+
+/**
+ * A* of the auction module, as used by the ASTAR initialization of the SLS (largest vehicle, all the tasks)
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AuctionAStarBenchmark {
+
+    @Param({"auction15", "auction20", "auction30", "auction50"})
+    public String config;
+
+    private Vehicle vehicle;
+    private List<Task> tasks;
+
+    @Setup
+    public void setup() throws Exception {
+        Fixture fixture = Fixture.load(config);
+        DistanceTable.init(fixture.topology);
+        RandomHandler.set(0);
+        vehicle = fixture.largestVehicle();
+        tasks = fixture.tasks;
+    }
+
+    @Benchmark
+    public VehiclePlan run() {
+        return AStar.run(vehicle, tasks, Heuristic.WEIGHT_NOT_TAKEN);
+    }
+}
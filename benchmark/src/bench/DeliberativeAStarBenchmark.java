@@ -0,0 +1,51 @@
+package bench;
+
+import algo.AStar;
+import algo.Heuristic;
+import logist.plan.Plan;
+import logist.task.TaskSet;
+import models.DistanceTable;
+import models.State;
+import models.StateRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A* of the deliberative module on the first tasks of the instance (the state space grows too fast to take them all)
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DeliberativeAStarBenchmark {
+
+    @Param({"auction15", "auction20", "auction30", "auction50"})
+    public String config;
+
+    @Param({"6"})
+    public int numTasks;
+
+    @Param({"DISTANCE_REMAINING2", "MST"})
+    public Heuristic heuristic;
+
+    private State startingState;
+
+    @Setup
+    public void setup() throws Exception {
+        Fixture fixture = Fixture.load(config);
+        DistanceTable.init(fixture.topology);
+        TaskSet tasks = fixture.firstTasks(numTasks);
+        FixtureVehicle vehicle = ((FixtureVehicle) fixture.largestVehicle()).withCurrentTasks(TaskSet.noneOf(tasks));
+        startingState = new StateRepresentation(vehicle, tasks);
+    }
+
+    @Benchmark
+    public Plan run() {
+        return AStar.run(startingState, heuristic);
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import logist.config.Parsers;
+import logist.simulation.Vehicle;
+import logist.task.Task;
+import logist.task.TaskSet;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic instance built from one of the auction configurations (auction15.xml ... auction50.xml): same topology,
+ * number of tasks, seed, task weight and vehicles of the first company. Tasks are drawn uniformly from the seed.
+ */
+public class Fixture {
+    private static final String AUCTION_DIR = System.getProperty("bench.auctionDir", "../auction");
+
+    public final Topology topology;
+    public final FixtureDistribution distribution;
+    public final List<Vehicle> vehicles;
+    public final List<Task> tasks;
+    public final TaskSet taskSet;
+
+    private Fixture(Topology topology, FixtureDistribution distribution, List<Vehicle> vehicles, List<Task> tasks,
+                    TaskSet taskSet) {
+        this.topology = topology;
+        this.distribution = distribution;
+        this.vehicles = vehicles;
+        this.tasks = tasks;
+        this.taskSet = taskSet;
+    }
+
+    /**
+     * @param config name of the configuration, e.g. "auction30"
+     */
+    public static Fixture load(String config) throws Exception {
+        File configFile = new File(AUCTION_DIR, "config/" + config + ".xml");
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(configFile);
+
+        String topologyFile = ((Element) doc.getElementsByTagName("topology").item(0)).getAttribute("import");
+        Topology topology = Parsers.parseTopology(new File(AUCTION_DIR, topologyFile).getPath());
+
+        Element tasksTag = (Element) doc.getElementsByTagName("tasks").item(0);
+        int numTasks = Integer.parseInt(tasksTag.getAttribute("number"));
+        long seed = Long.parseLong(tasksTag.getAttribute("rngSeed"));
+        int weight = Integer.parseInt(((Element) tasksTag.getElementsByTagName("weight").item(0)).getAttribute("value"));
+
+        Random random = new Random(seed);
+        Task[] taskArray = new Task[numTasks];
+        for (int i = 0; i < numTasks; i++) {
+            City from = topology.randomCity(random);
+            City to = topology.randomCity(random);
+            while (to == from) {
+                to = topology.randomCity(random);
+            }
+            taskArray[i] = new Task(i, from, to, 0, weight);
+        }
+        TaskSet taskSet = TaskSet.create(taskArray);
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        Element company = (Element) doc.getElementsByTagName("company").item(0);
+        NodeList vehicleTags = company.getElementsByTagName("vehicle");
+        for (int i = 0; i < vehicleTags.getLength(); i++) {
+            Element vehicleTag = (Element) vehicleTags.item(i);
+            Map<String, String> settings = new HashMap<>();
+            NodeList sets = vehicleTag.getElementsByTagName("set");
+            for (int j = 0; j < sets.getLength(); j++) {
+                Element set = (Element) sets.item(j);
+                for (int k = 0; k < set.getAttributes().getLength(); k++) {
+                    settings.put(set.getAttributes().item(k).getNodeName(), set.getAttributes().item(k).getNodeValue());
+                }
+            }
+            vehicles.add(new FixtureVehicle(
+                    i,
+                    vehicleTag.getAttribute("name"),
+                    Integer.parseInt(settings.get("capacity")),
+                    Integer.parseInt(settings.get("cost-per-km")),
+                    topology.parseCity(settings.get("home")),
+                    TaskSet.noneOf(taskSet)
+            ));
+        }
+
+        return new Fixture(topology, new FixtureDistribution(topology, seed, weight), vehicles,
+                List.of(taskArray), taskSet);
+    }
+
+    public Vehicle largestVehicle() {
+        Vehicle largest = vehicles.get(0);
+        for (Vehicle v : vehicles) {
+            if (v.capacity() > largest.capacity()) {
+                largest = v;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Task set made of the first n tasks only, for the planners that cannot handle a whole auction
+     */
+    public TaskSet firstTasks(int n) {
+        Task[] first = new Task[Math.min(n, tasks.size())];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = tasks.get(i);
+        }
+        return TaskSet.create(first);
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import logist.agent.Agent;
+import logist.agent.AgentStatistics;
+import logist.simulation.Vehicle;
+import logist.task.TaskSet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agent with only the properties given by withProperty, behaviors use their default parameters for the others
+ */
+public class FixtureAgent implements Agent {
+
+    private final List<Vehicle> vehicles;
+    private final Map<String, String> properties = new HashMap<>();
+
+    public FixtureAgent(List<Vehicle> vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public FixtureAgent withProperty(String name, String value) {
+        properties.put(name, value);
+        return this;
+    }
+
+    @Override
+    public int id() {
+        return 0;
+    }
+
+    @Override
+    public List<Vehicle> vehicles() {
+        return vehicles;
+    }
+
+    @Override
+    public TaskSet getTasks() {
+        return null;
+    }
+
+    @Override
+    public <T> T readProperty(String paramName, Class<T> clazz, T default_) {
+        String value = properties.get(paramName);
+        if (value == null) {
+            return default_;
+        } else if (clazz == Integer.class) {
+            return clazz.cast(Integer.valueOf(value));
+        } else if (clazz == Double.class) {
+            return clazz.cast(Double.valueOf(value));
+        } else if (clazz == Boolean.class) {
+            return clazz.cast(Boolean.valueOf(value));
+        }
+        return clazz.cast(value);
+    }
+
+    @Override
+    public String name() {
+        return "fixture";
+    }
+
+    @Override
+    public long getTotalDistanceUnits() {
+        return 0;
+    }
+
+    @Override
+    public double getTotalDistance() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalCost() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalReward() {
+        return 0;
+    }
+
+    @Override
+    public long getTotalProfit() {
+        return 0;
+    }
+
+    @Override
+    public int getTotalTasks() {
+        return 0;
+    }
+
+    @Override
+    public int compareTo(AgentStatistics that) {
+        return 0;
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import logist.task.TaskDistribution;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.Random;
+
+/**
+ * Seeded uniform task distribution, rewards favour short distances like the "short-distances" policy of the configs
+ */
+public class FixtureDistribution implements TaskDistribution {
+
+    private final int numCities;
+    private final double[] probabilities; // probabilities[from * (numCities + 1) + to], to = numCities means no task
+    private final int[] rewards;
+    private final int weight;
+
+    public FixtureDistribution(Topology topology, long seed, int weight) {
+        this.numCities = topology.size();
+        this.probabilities = new double[numCities * (numCities + 1)];
+        this.rewards = new int[numCities * numCities];
+        this.weight = weight;
+
+        Random random = new Random(seed);
+        for (City from : topology) {
+            double sum = 0;
+            for (int to = 0; to <= numCities; to++) {
+                double p = to == from.id ? 0 : random.nextDouble();
+                probabilities[from.id * (numCities + 1) + to] = p;
+                sum += p;
+            }
+            for (int to = 0; to <= numCities; to++) {
+                probabilities[from.id * (numCities + 1) + to] /= sum;
+            }
+            for (City to : topology) {
+                rewards[from.id * numCities + to.id] = (int) (100 + 99899 / (1 + from.distanceTo(to)));
+            }
+        }
+    }
+
+    @Override
+    public double probability(City from, City to) {
+        return probabilities[from.id * (numCities + 1) + (to == null ? numCities : to.id)];
+    }
+
+    @Override
+    public int reward(City from, City to) {
+        return rewards[from.id * numCities + to.id];
+    }
+
+    @Override
+    public int weight(City from, City to) {
+        return weight;
+    }
+}
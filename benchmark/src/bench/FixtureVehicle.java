@@ -0,0 +1,96 @@
+package bench;
+
+import logist.simulation.Vehicle;
+import logist.task.TaskSet;
+import logist.topology.Topology.City;
+
+import java.awt.Color;
+
+/**
+ * Vehicle parked in its home city, as at the beginning of a simulation
+ */
+public class FixtureVehicle implements Vehicle {
+
+    private final int id;
+    private final String name;
+    private final int capacity;
+    private final int costPerKm;
+    private final City home;
+    private final TaskSet currentTasks;
+
+    public FixtureVehicle(int id, String name, int capacity, int costPerKm, City home, TaskSet currentTasks) {
+        this.id = id;
+        this.name = name;
+        this.capacity = capacity;
+        this.costPerKm = costPerKm;
+        this.home = home;
+        this.currentTasks = currentTasks;
+    }
+
+    /**
+     * Same vehicle, but carrying tasks from another task universe
+     */
+    public FixtureVehicle withCurrentTasks(TaskSet currentTasks) {
+        return new FixtureVehicle(id, name, capacity, costPerKm, home, currentTasks);
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public City homeCity() {
+        return home;
+    }
+
+    @Override
+    public double speed() {
+        return 90;
+    }
+
+    @Override
+    public int costPerKm() {
+        return costPerKm;
+    }
+
+    @Override
+    public City getCurrentCity() {
+        return home;
+    }
+
+    @Override
+    public TaskSet getCurrentTasks() {
+        return currentTasks;
+    }
+
+    @Override
+    public long getReward() {
+        return 0;
+    }
+
+    @Override
+    public long getDistanceUnits() {
+        return 0;
+    }
+
+    @Override
+    public double getDistance() {
+        return 0;
+    }
+
+    @Override
+    public Color color() {
+        return Color.BLUE;
+    }
+}
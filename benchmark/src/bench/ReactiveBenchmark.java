@@ -0,0 +1,48 @@
+package bench;
+
+import agents.ReactiveAgent;
+import models.DistanceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Value iteration done in ReactiveAgent.setup, on the topology of each auction configuration and with each way of
+ * ordering the backups
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReactiveBenchmark {
+
+    @Param({"auction15", "auction20", "auction30", "auction50"})
+    public String config;
+
+    @Param({"jacobi", "gauss-seidel", "prioritised"})
+    public String valueIteration;
+
+    private Fixture fixture;
+    private FixtureAgent agent;
+
+    @Setup
+    public void setup() throws Exception {
+        fixture = Fixture.load(config);
+        DistanceTable.init(fixture.topology);
+        agent = new FixtureAgent(fixture.vehicles)
+                .withProperty("value-iteration", valueIteration)
+                .withProperty("verbose-sweeps", "false");
+    }
+
+    @Benchmark
+    public ReactiveAgent setupAgent() {
+        ReactiveAgent reactiveAgent = new ReactiveAgent();
+        reactiveAgent.setup(fixture.topology, fixture.distribution, agent);
+        return reactiveAgent;
+    }
+}
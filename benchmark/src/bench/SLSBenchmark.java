@@ -0,0 +1,70 @@
+package bench;
+
+import models.CentralizedPlan;
+import models.DistanceTable;
+import models.InitStrategy;
+import models.PlanGenerator;
+import models.SLS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import random.RandomHandler;
+
+/**
+ * Full SLS with a fixed time budget: the time per operation is the budget, what matters here is the allocation
+ * (-prof gc) and the cost reached, which is printed at the end of each iteration
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+public class SLSBenchmark {
+
+    @Param({"auction15", "auction20", "auction30", "auction50"})
+    public String config;
+
+    @Param({"100"})
+    public long timeLimit;
+
+    @Param({"1"})
+    public int numWorkers;
+
+    private CentralizedPlan initialPlan;
+    private double lastCost;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Fixture fixture = Fixture.load(config);
+        DistanceTable.init(fixture.topology);
+        RandomHandler.set(0);
+        initialPlan = PlanGenerator.generate(fixture.vehicles, fixture.tasks, InitStrategy.ASTAR);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCost() {
+        System.out.println("cost reached: " + lastCost);
+    }
+
+    @TearDown(Level.Trial)
+    public void printOperatorStatistics() {
+        System.out.println("operator statistics:\n" + SLS.getOperatorStatistics());
+        SLS.getOperatorStatistics().reset();
+    }
+
+    @Benchmark
+    public CentralizedPlan optimize() {
+        CentralizedPlan plan = SLS.optimize(initialPlan, timeLimit, numWorkers);
+        lastCost = plan.getCost();
+        return plan;
+    }
+}
@@ -0,0 +1,50 @@
+package bench;
+
+import algo.astar.AStar;
+import algo.astar.Heuristic;
+import models.DistanceTable;
+import models.VehiclePlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import random.RandomHandler;
+
+/**
+ * Cost and copy of one vehicle plan holding all the tasks of the instance, the two operations done for every
+ * neighbour of the SLS
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VehiclePlanBenchmark {
+
+    @Param({"auction15", "auction20", "auction30", "auction50"})
+    public String config;
+
+    private VehiclePlan plan;
+
+    @Setup
+    public void setup() throws Exception {
+        Fixture fixture = Fixture.load(config);
+        DistanceTable.init(fixture.topology);
+        RandomHandler.set(0);
+        plan = AStar.run(fixture.largestVehicle(), fixture.tasks, Heuristic.WEIGHT_NOT_TAKEN);
+        plan.setCanMutate(false);
+    }
+
+    @Benchmark
+    public double getCost() {
+        return plan.getCost();
+    }
+
+    @Benchmark
+    public VehiclePlan copy() {
+        return plan.copy();
+    }
+}
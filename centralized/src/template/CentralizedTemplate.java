@@ -12,6 +12,7 @@ import logist.task.TaskSet;
 import logist.topology.Topology;
 import logist.topology.Topology.City;
 import models.CentralizedPlan;
+import models.DistanceTable;
 import models.InitStrategy;
 import models.PlanGenerator;
 import models.SLS;
@@ -34,6 +35,7 @@ public class CentralizedTemplate implements CentralizedBehavior {
     private long timeout_plan;
 
     private Algorithm algorithm;
+    private int slsWorkers;
 
     @Override
     public void setup(Topology topology, TaskDistribution distribution,
@@ -53,10 +55,12 @@ public class CentralizedTemplate implements CentralizedBehavior {
         timeout_plan = ls.get(LogistSettings.TimeoutKey.PLAN);
         String algorithmChosen = agent.readProperty("algorithm", String.class, "NAIVE").toUpperCase();
         algorithm = Algorithm.valueOf(algorithmChosen);
+        slsWorkers = agent.readProperty("slsWorkers", Integer.class, 1);
 
         this.topology = topology;
         this.distribution = distribution;
         this.agent = agent;
+        DistanceTable.init(topology);
 
         PrintHandler.setVerbosityLevel(4);
     }
@@ -122,7 +126,7 @@ public class CentralizedTemplate implements CentralizedBehavior {
 
     private List<Plan> slsPlans(List<Vehicle> vehicles, TaskSet tasks, long startTime) {
         CentralizedPlan plan = PlanGenerator.generate(vehicles, new ArrayList<>(tasks), InitStrategy.ASTAR);
-        plan = SLS.optimize(plan, timeout_plan - (long) 1e3);
+        plan = SLS.optimize(plan, timeout_plan - (long) 1e3, slsWorkers);
         return plan.toLogistPlans();
     }
 
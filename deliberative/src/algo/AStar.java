@@ -1,8 +1,11 @@
 package algo;
 
 import logist.plan.Plan;
+import logist.task.Task;
 import logist.topology.Topology;
+import models.DistanceTable;
 import models.State;
+import models.TaskIndex;
 
 import java.util.*;
 
@@ -12,103 +15,185 @@ public class AStar {
 
     private static double weightOfTasksNotTaken(State s) {
         double factor = 1e4;
-        return factor * s.getTaskNotTaken().size();
+        return factor * Long.bitCount(s.getNotTakenMask());
     }
 
     private static double distanceRemaining1(State s) {
+        DistanceTable distances = DistanceTable.get();
+        TaskIndex tasks = s.getTaskIndex();
+        Topology.City currentCity = s.getCurrentCity();
         double factor = 1;
         double h = 0;
-        if (!s.getTaskNotTaken().isEmpty()) {
-            h = Math.max(h, s.getTaskNotTaken().stream()
-                    .map(t -> s.getCurrentCity().distanceTo(t.pickupCity))
-                    .max(Comparator.comparing(Double::doubleValue))
-                    .get());
-        }
-        if (!s.getTaskTaken().isEmpty()) {
-            h = Math.max(h, s.getTaskTaken().stream()
-                    .map(t -> s.getCurrentCity().distanceTo(t.deliveryCity))
-                    .max(Comparator.comparing(Double::doubleValue))
-                    .get());
+        for (long m = s.getNotTakenMask(); m != 0; m &= m - 1) {
+            h = Math.max(h, distances.distance(currentCity, tasks.task(Long.numberOfTrailingZeros(m)).pickupCity));
+        }
+        for (long m = s.getTakenMask(); m != 0; m &= m - 1) {
+            h = Math.max(h, distances.distance(currentCity, tasks.task(Long.numberOfTrailingZeros(m)).deliveryCity));
         }
         return factor * h * s.getCostPerKM();
     }
 
     private static double distanceRemaining2(State s) {
+        DistanceTable distances = DistanceTable.get();
+        TaskIndex tasks = s.getTaskIndex();
         double factor = 1;
         double h = 0;
         List<Topology.City> citiesToGoThrough = new ArrayList<>();
 
-        if (!s.getTaskNotTaken().isEmpty()) {
-            citiesToGoThrough.add(s.getTaskNotTaken().iterator().next().pickupCity);
+        if (s.getNotTakenMask() != 0) {
+            citiesToGoThrough.add(tasks.task(Long.numberOfTrailingZeros(s.getNotTakenMask())).pickupCity);
         }
-        if (!s.getTaskTaken().isEmpty()) {
-            citiesToGoThrough.add(s.getTaskTaken().iterator().next().deliveryCity);
+        if (s.getTakenMask() != 0) {
+            citiesToGoThrough.add(tasks.task(Long.numberOfTrailingZeros(s.getTakenMask())).deliveryCity);
         }
         if (citiesToGoThrough.size() == 2) {
             h = Math.min(
-                    s.getCurrentCity().distanceTo(citiesToGoThrough.get(0)) +
-                            citiesToGoThrough.get(0).distanceTo(citiesToGoThrough.get(1)),
-                    s.getCurrentCity().distanceTo(citiesToGoThrough.get(1)) +
-                            citiesToGoThrough.get(1).distanceTo(citiesToGoThrough.get(0))
+                    distances.distance(s.getCurrentCity(), citiesToGoThrough.get(0)) +
+                            distances.distance(citiesToGoThrough.get(0), citiesToGoThrough.get(1)),
+                    distances.distance(s.getCurrentCity(), citiesToGoThrough.get(1)) +
+                            distances.distance(citiesToGoThrough.get(1), citiesToGoThrough.get(0))
             );
         } else if (citiesToGoThrough.size() == 1) {
-            h = s.getCurrentCity().distanceTo(citiesToGoThrough.get(0));
+            h = distances.distance(s.getCurrentCity(), citiesToGoThrough.get(0));
         }
         return factor * h * s.getCostPerKM();
     }
 
     private static double distanceRemaining3(State s) {
+        TaskIndex tasks = s.getTaskIndex();
         double factor = 1;
         double minDistance = 40; // this is hardcoded for Switzerland Topology
         Set<Topology.City> citiesToGoThrough = new HashSet<>();
-        s.getTaskNotTaken().forEach(t ->
-                citiesToGoThrough.add(t.pickupCity)
-        );
-        s.getTaskTaken().forEach(t ->
-                citiesToGoThrough.add(t.deliveryCity)
-        );
+        for (long m = s.getNotTakenMask(); m != 0; m &= m - 1) {
+            citiesToGoThrough.add(tasks.task(Long.numberOfTrailingZeros(m)).pickupCity);
+        }
+        for (long m = s.getTakenMask(); m != 0; m &= m - 1) {
+            citiesToGoThrough.add(tasks.task(Long.numberOfTrailingZeros(m)).deliveryCity);
+        }
         return factor * citiesToGoThrough.size() * minDistance * s.getCostPerKM();
     }
 
-    public static Plan run(final State startingState, Heuristic h) {
+    /**
+     * Lower bound on the distance still to travel: the largest of the minimum spanning tree over the current city and
+     * every city still to visit (any route through them is at least as long) and of the longest single task to finish.
+     * Spanning trees only depend on the set of cities, so they are cached by city bitmask.
+     */
+    private static double spanningTree(State s, Map<Long, Double> spanningTrees) {
+        DistanceTable distances = DistanceTable.get();
+        TaskIndex tasks = s.getTaskIndex();
+        Topology.City currentCity = s.getCurrentCity();
+
+        long cities = 1L << currentCity.id;
+        double longestTask = 0;
+        for (long m = s.getNotTakenMask(); m != 0; m &= m - 1) {
+            Task t = tasks.task(Long.numberOfTrailingZeros(m));
+            cities |= 1L << t.pickupCity.id | 1L << t.deliveryCity.id;
+            longestTask = Math.max(longestTask,
+                    distances.distance(currentCity, t.pickupCity) + distances.distance(t.pickupCity, t.deliveryCity));
+        }
+        for (long m = s.getTakenMask(); m != 0; m &= m - 1) {
+            Task t = tasks.task(Long.numberOfTrailingZeros(m));
+            cities |= 1L << t.deliveryCity.id;
+            longestTask = Math.max(longestTask, distances.distance(currentCity, t.deliveryCity));
+        }
+
+        Double tree = spanningTrees.get(cities);
+        if (tree == null) {
+            tree = spanningTree(distances, cities);
+            spanningTrees.put(cities, tree);
+        }
+        return Math.max(tree, longestTask) * s.getCostPerKM();
+    }
+
+    /**
+     * Prim on the complete graph of shortest path distances between the cities of the mask
+     */
+    private static double spanningTree(DistanceTable distances, long cities) {
+        int n = Long.bitCount(cities);
+        int[] ids = new int[n];
+        int k = 0;
+        for (long m = cities; m != 0; m &= m - 1) {
+            ids[k++] = Long.numberOfTrailingZeros(m);
+        }
 
-        Comparator<State> statesComparator = (s1, s2) -> {
-            switch (h) {
-                case DISTANCE_REMAINING1:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining1(s1),
-                            s2.getCurrentCost() + distanceRemaining1(s2));
-                case DISTANCE_REMAINING2:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining2(s1),
-                            s2.getCurrentCost() + distanceRemaining2(s2));
-                case DISTANCE_REMAINING3:
-                    return Double.compare(s1.getCurrentCost() + distanceRemaining3(s1),
-                            s2.getCurrentCost() + distanceRemaining3(s2));
-                case WEIGHT_NOT_TAKEN:
-                    return Double.compare(s1.getCurrentCost() + weightOfTasksNotTaken(s1),
-                            s2.getCurrentCost() + weightOfTasksNotTaken(s2));
-                case ZERO:
-                default:
-                    return Double.compare(s1.getCurrentCost(), s2.getCurrentCost());
+        double[] distanceToTree = new double[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(distanceToTree, Double.POSITIVE_INFINITY);
+        distanceToTree[0] = 0;
+        double length = 0;
+        for (int added = 0; added < n; added++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i] && (next < 0 || distanceToTree[i] < distanceToTree[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            length += distanceToTree[next];
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i]) {
+                    distanceToTree[i] = Math.min(distanceToTree[i], distances.distance(ids[next], ids[i]));
+                }
             }
+        }
+        return length;
+    }
+
+    private static double heuristic(State s, Heuristic h, Map<Long, Double> spanningTrees) {
+        switch (h) {
+            case MST:
+                return spanningTree(s, spanningTrees);
+            case DISTANCE_REMAINING1:
+                return distanceRemaining1(s);
+            case DISTANCE_REMAINING2:
+                return distanceRemaining2(s);
+            case DISTANCE_REMAINING3:
+                return distanceRemaining3(s);
+            case WEIGHT_NOT_TAKEN:
+                return weightOfTasksNotTaken(s);
+            case ZERO:
+            default:
+                return 0;
+        }
+    }
 
-        };
+    public static Plan run(final State startingState, Heuristic h) {
+        if (h == Heuristic.MST && DistanceTable.get().numCities() > Long.SIZE) {
+            throw new IllegalArgumentException("MST heuristic needs at most " + Long.SIZE + " cities");
+        }
 
-        VisitOnceQueue statesQueue = new VisitOnceQueue(new PriorityQueue<>(statesComparator), new HashSet<>());
-        statesQueue.visit(startingState);
-        statesQueue.addAll(startingState.getNextStates());
+        OpenList openList = new OpenList();
+        Map<State, Double> closedStates = new HashMap<>(); // cost with which each expanded state was reached
+        Map<Long, Double> spanningTrees = new HashMap<>();
+        openList.push(startingState, startingState.getCurrentCost() + heuristic(startingState, h, spanningTrees));
 
         int nSteps = 0;
+        int nDuplicates = 0;
         State state = startingState;
-        while (!state.isFinalState() && !statesQueue.isEmpty()) {
+        while (!openList.isEmpty()) {
+            state = openList.poll();
+            if (state.isFinalState()) {
+                break;
+            }
             nSteps += 1;
-            state = statesQueue.poll();
-            if (statesQueue.hasNotVisited(state)) {
-                statesQueue.visit(state);
-                statesQueue.addAll(state.getNextStates());
+            closedStates.put(state, state.getCurrentCost());
+            for (State next : state.getNextStates()) {
+                Double closedCost = closedStates.get(next);
+                if (closedCost != null && next.getCurrentCost() >= closedCost) {
+                    nDuplicates += 1;
+                } else {
+                    if (closedCost != null) { // reached again with a lower cost, it has to be expanded again
+                        closedStates.remove(next);
+                    }
+                    if (!openList.push(next, next.getCurrentCost() + heuristic(next, h, spanningTrees))) {
+                        nDuplicates += 1;
+                    }
+                }
             }
         }
 
-        System.out.println("ASTAR converged in " + nSteps + " number of steps");
+        System.out.println("ASTAR converged in " + nSteps + " number of steps (" + nDuplicates
+                + " duplicates, peak open size " + openList.getPeakSize() + ")");
 
         if (!state.isFinalState()) {
             throw new IllegalStateException("ASTAR did not find any final state");
@@ -3,7 +3,6 @@ package algo;
 import logist.plan.Plan;
 import models.State;
 
-import java.util.HashSet;
 import java.util.LinkedList;
 
 public class BFS {
@@ -11,7 +10,7 @@ public class BFS {
     }
 
     public static Plan run(final State startingState) {
-        VisitOnceQueue statesQueue = new VisitOnceQueue(new LinkedList<>(), new HashSet<>());
+        VisitOnceQueue statesQueue = new VisitOnceQueue(new LinkedList<>());
         statesQueue.visit(startingState);
         statesQueue.addAll(startingState.getNextStates());
 
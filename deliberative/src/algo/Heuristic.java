@@ -1,3 +1,3 @@
 package algo;
 
-public enum Heuristic {DISTANCE_REMAINING1, DISTANCE_REMAINING2, DISTANCE_REMAINING3, WEIGHT_NOT_TAKEN, ZERO}
+public enum Heuristic {DISTANCE_REMAINING1, DISTANCE_REMAINING2, DISTANCE_REMAINING3, WEIGHT_NOT_TAKEN, MST, ZERO}
@@ -9,10 +9,6 @@ public class VisitOnceQueue implements Queue<State> {
     private Queue<State> statesQueue;
 
     public VisitOnceQueue(Queue<State> statesQueue) {
-        this(statesQueue, new HashSet<>());
-    }
-
-    public VisitOnceQueue(Queue<State> statesQueue, Set<State> visitedStates) {
         this.visitedStates = new HashMap<>();
         this.statesQueue = statesQueue;
     }
@@ -1,17 +1,15 @@
 package models;
 
 import logist.task.Task;
-import logist.task.TaskSet;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class DeliveryAction implements Action {
 
     private Task task;
+    private int taskBit; // position of the task in the TaskIndex of the state
 
-    public DeliveryAction(Task task) {
+    public DeliveryAction(Task task, int taskBit) {
         this.task = task;
+        this.taskBit = taskBit;
     }
 
     @Override
@@ -22,20 +20,16 @@ public class DeliveryAction implements Action {
     @Override
     public State getNextState(State state) {
 
-        TaskSet taken = state.getTaskTaken().clone();
-        taken.remove(task);
-
-        List<Action> actions = new ArrayList<>(state.getPreviousActions());
-        actions.add(this);
-
         return new StateRepresentation(
-                state.getCurrentCity(),
-                taken,
+                state.getTaskIndex(),
+                state.getCurrentCity().id,
+                state.getTakenMask() & ~(1L << taskBit),
+                state.getNotTakenMask(),
                 state.getCapacityRemaining() + task.weight,
-                state.getTaskNotTaken(),
                 state.getCostPerKM(),
                 state.getCurrentCost() + this.getCost(),
-                actions
+                state,
+                this
         );
     }
 
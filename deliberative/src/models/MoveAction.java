@@ -2,9 +2,6 @@ package models;
 
 import logist.topology.Topology;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class MoveAction implements Action {
 
     private Topology.City fromCity;
@@ -25,23 +22,22 @@ public class MoveAction implements Action {
     @Override
     public State getNextState(State state) {
 
-        List<Action> actions = new ArrayList<>(state.getPreviousActions());
-        actions.add(this);
-
         return new StateRepresentation(
-                toCity,
-                state.getTaskTaken().clone(),
+                state.getTaskIndex(),
+                toCity.id,
+                state.getTakenMask(),
+                state.getNotTakenMask(),
                 state.getCapacityRemaining(),
-                state.getTaskNotTaken().clone(),
                 costPerKM,
                 state.getCurrentCost() + this.getCost(),
-                actions
+                state,
+                this
         );
     }
 
     @Override
     public double getCost() {
-        return fromCity.distanceTo(toCity) * costPerKM;
+        return DistanceTable.get().distance(fromCity, toCity) * costPerKM;
     }
 
     @Override
@@ -1,17 +1,15 @@
 package models;
 
 import logist.task.Task;
-import logist.task.TaskSet;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class PickupAction implements Action {
 
     private Task task;
+    private int taskBit; // position of the task in the TaskIndex of the state
 
-    public PickupAction(Task task) {
+    public PickupAction(Task task, int taskBit) {
         this.task = task;
+        this.taskBit = taskBit;
     }
 
     @Override
@@ -22,23 +20,17 @@ public class PickupAction implements Action {
     @Override
     public State getNextState(State state) {
 
-        TaskSet taken = state.getTaskTaken().clone();
-        taken.add(task);
-
-        TaskSet notTaken = state.getTaskNotTaken().clone();
-        notTaken.remove(task);
-
-        List<Action> actions = new ArrayList<>(state.getPreviousActions());
-        actions.add(this);
-
+        long bit = 1L << taskBit;
         return new StateRepresentation(
-                state.getCurrentCity(),
-                taken,
+                state.getTaskIndex(),
+                state.getCurrentCity().id,
+                state.getTakenMask() | bit,
+                state.getNotTakenMask() & ~bit,
                 state.getCapacityRemaining() - task.weight,
-                notTaken,
                 state.getCostPerKM(),
                 state.getCurrentCost() + this.getCost(),
-                actions
+                state,
+                this
         );
     }
 
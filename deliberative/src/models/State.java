@@ -25,5 +25,12 @@ public interface State {
     int getCapacityRemaining();
     TaskSet getTaskNotTaken();
 
+    TaskIndex getTaskIndex();
+    long getTakenMask();
+    long getNotTakenMask();
+
+    State getPreviousState();
+    Action getLastAction();
+
     Plan toPlan(State startingState);
 }
@@ -7,23 +7,27 @@ import logist.task.TaskSet;
 import logist.topology.Topology;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 
-
+/**
+ * Task sets are kept as bit masks over a TaskIndex shared by the whole search, and actions as a chain of pointers to
+ * the previous state, so that a successor is a handful of words and nothing is copied.
+ */
 public class StateRepresentation implements State {
-    private static final Task[] EMPTY_TASK_ARRAY = {};
 
-    private final Topology.City currentCity;
-    private final TaskSet taskTaken;
+    private final TaskIndex taskIndex;
+    private final int cityIndex;
+    private final long taskTaken;
+    private final long taskNotTaken;
     private final int capacityRemaining;
-    private final TaskSet taskNotTaken;
     private final double currentCost;
-    private final List<Action> previousActions;
     private final double costPerKM;
+    private final State previousState;
+    private final Action lastAction;
+    private final long hash;
 
 
     public StateRepresentation(Vehicle vehicle, TaskSet taskset) {
@@ -32,51 +36,78 @@ public class StateRepresentation implements State {
 
     public StateRepresentation(Topology.City currentCity, TaskSet taskTaken, int capacityRemaining,
                                TaskSet taskNotTaken, double costPerKM) {
-        this(currentCity, taskTaken, capacityRemaining, taskNotTaken, costPerKM, 0d, new ArrayList<>());
-    }
-
-    public StateRepresentation(Topology.City currentCity,
-                               TaskSet taskTaken,
-                               int capacityRemaining,
-                               TaskSet taskNotTaken,
-                               double costPerKM,
-                               double currentCost,
-                               List<Action> previousActions) {
-        this.currentCity = currentCity;
+        this(new TaskIndex(taskTaken, taskNotTaken), currentCity.id, taskTaken, taskNotTaken, capacityRemaining,
+                costPerKM);
+    }
+
+    private StateRepresentation(TaskIndex taskIndex, int cityIndex, TaskSet taskTaken, TaskSet taskNotTaken,
+                                int capacityRemaining, double costPerKM) {
+        this(taskIndex, cityIndex, taskIndex.maskOf(taskTaken), taskIndex.maskOf(taskNotTaken), capacityRemaining,
+                costPerKM, 0d, null, null);
+    }
+
+    StateRepresentation(TaskIndex taskIndex,
+                        int cityIndex,
+                        long taskTaken,
+                        long taskNotTaken,
+                        int capacityRemaining,
+                        double costPerKM,
+                        double currentCost,
+                        State previousState,
+                        Action lastAction) {
+        this.taskIndex = taskIndex;
+        this.cityIndex = cityIndex;
         this.taskTaken = taskTaken;
-        this.capacityRemaining = capacityRemaining;
         this.taskNotTaken = taskNotTaken;
-        this.currentCost = currentCost;
-        this.previousActions = Collections.unmodifiableList(previousActions);
+        this.capacityRemaining = capacityRemaining;
         this.costPerKM = costPerKM;
+        this.currentCost = currentCost;
+        this.previousState = previousState;
+        this.lastAction = lastAction;
+        this.hash = hash(cityIndex, taskTaken, taskNotTaken, capacityRemaining);
+    }
+
+    private static long hash(int cityIndex, long taskTaken, long taskNotTaken, int capacityRemaining) {
+        long h = taskTaken * 0x9E3779B97F4A7C15L;
+        h ^= Long.rotateLeft(taskNotTaken * 0xC2B2AE3D27D4EB4FL, 31);
+        h ^= ((long) cityIndex << 32 | capacityRemaining) * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ h >>> 32;
     }
 
     @Override
     public boolean isFinalState() {
-        return taskTaken.isEmpty() && getTaskNotTaken().isEmpty();
+        return taskTaken == 0L && taskNotTaken == 0L;
     }
 
     @Override
     public List<Action> getAllPossibleActions() {
 
+        DistanceTable distances = DistanceTable.get();
+        Topology.City currentCity = getCurrentCity();
         List<Action> possibleActions = new ArrayList<>();
         List<Topology.City> destinationInTaskPath = new ArrayList<>();
 
-        for (Task task : taskTaken) {
+        for (long m = taskTaken; m != 0; m &= m - 1) {
+            int bit = Long.numberOfTrailingZeros(m);
+            Task task = taskIndex.task(bit);
             if (task.deliveryCity == currentCity) { // Add all "drop task in current city" actions
-                possibleActions.add(new DeliveryAction(task));
+                possibleActions.add(new DeliveryAction(task, bit));
                 return possibleActions;
             } else { // Add all "move in direction to city to drop task" actions
-                destinationInTaskPath.add(currentCity.pathTo(task.deliveryCity).get(0));
+                addOnce(destinationInTaskPath, distances.nextCity(currentCity, task.deliveryCity));
             }
         }
 
-        for (Task task : taskNotTaken) {
+        for (long m = taskNotTaken; m != 0; m &= m - 1) {
+            int bit = Long.numberOfTrailingZeros(m);
+            Task task = taskIndex.task(bit);
             if (task.weight <= capacityRemaining) {
                 if (task.pickupCity == currentCity) { // Add all "take task in current city" actions
-                    possibleActions.add(new PickupAction(task));
+                    possibleActions.add(new PickupAction(task, bit));
                 } else { // Add all "move in direction to city to pickup task" actions
-                    destinationInTaskPath.add(currentCity.pathTo(task.pickupCity).get(0));
+                    addOnce(destinationInTaskPath, distances.nextCity(currentCity, task.pickupCity));
                 }
             }
         }
@@ -89,6 +120,12 @@ public class StateRepresentation implements State {
         return possibleActions;
     }
 
+    private static void addOnce(List<Topology.City> cities, Topology.City city) {
+        if (!cities.contains(city)) {
+            cities.add(city);
+        }
+    }
+
     @Override
     public List<State> getNextStates() {
         return this.getAllPossibleActions().stream()
@@ -98,12 +135,12 @@ public class StateRepresentation implements State {
 
     @Override
     public Topology.City getCurrentCity() {
-        return this.currentCity;
+        return DistanceTable.get().city(cityIndex);
     }
 
     @Override
     public TaskSet getTaskTaken() {
-        return this.taskTaken;
+        return taskIndex.toTaskSet(taskTaken);
     }
 
     @Override
@@ -113,18 +150,40 @@ public class StateRepresentation implements State {
 
     @Override
     public TaskSet getTaskNotTaken() {
-        return this.taskNotTaken;
+        return taskIndex.toTaskSet(taskNotTaken);
+    }
+
+    @Override
+    public TaskIndex getTaskIndex() {
+        return taskIndex;
+    }
+
+    @Override
+    public long getTakenMask() {
+        return taskTaken;
+    }
+
+    @Override
+    public long getNotTakenMask() {
+        return taskNotTaken;
+    }
+
+    @Override
+    public State getPreviousState() {
+        return previousState;
+    }
+
+    @Override
+    public Action getLastAction() {
+        return lastAction;
     }
 
     @Override
     public Plan toPlan(State startingState) {
         Plan plan = new Plan(startingState.getCurrentCity());
-
-        this.getPreviousActions().stream()
+        getPreviousActions().stream()
                 .map(models.Action::getAction)
-                .collect(Collectors.toCollection(LinkedList::new))
                 .forEach(plan::append);
-
         return plan;
     }
 
@@ -140,7 +199,11 @@ public class StateRepresentation implements State {
 
     @Override
     public List<Action> getPreviousActions() {
-        return Collections.unmodifiableList(previousActions);
+        LinkedList<Action> actions = new LinkedList<>();
+        for (State s = this; s.getLastAction() != null; s = s.getPreviousState()) {
+            actions.addFirst(s.getLastAction());
+        }
+        return actions;
     }
 
     @Override
@@ -150,18 +213,15 @@ public class StateRepresentation implements State {
 
         StateRepresentation that = (StateRepresentation) o;
 
-        if (capacityRemaining != that.capacityRemaining) return false;
-        if (currentCity != null ? !currentCity.equals(that.currentCity) : that.currentCity != null) return false;
-        if (taskTaken != null ? !taskTaken.equals(that.taskTaken) : that.taskTaken != null) return false;
-        return taskNotTaken != null ? taskNotTaken.equals(that.taskNotTaken) : that.taskNotTaken == null;
+        return hash == that.hash
+                && cityIndex == that.cityIndex
+                && taskTaken == that.taskTaken
+                && taskNotTaken == that.taskNotTaken
+                && capacityRemaining == that.capacityRemaining;
     }
 
     @Override
     public int hashCode() {
-        int result = currentCity != null ? currentCity.hashCode() : 0;
-        result = 31 * result + (taskTaken != null ? taskTaken.hashCode() : 0);
-        result = 31 * result + capacityRemaining;
-        result = 31 * result + (taskNotTaken != null ? taskNotTaken.hashCode() : 0);
-        return result;
+        return (int) (hash ^ hash >>> 32);
     }
 }
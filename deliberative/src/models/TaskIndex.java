@@ -0,0 +1,54 @@
+package models;
+
+import logist.task.Task;
+import logist.task.TaskSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tasks of one planning problem, each one given a bit of a long (in increasing order of id) so that states can hold
+ * their task sets as bit masks. It is shared by all the states of a search.
+ */
+public class TaskIndex {
+    private final Task[] tasks;
+    private final TaskSet universe;
+
+    public TaskIndex(TaskSet taskTaken, TaskSet taskNotTaken) {
+        List<Task> all = new ArrayList<>(taskTaken);
+        all.addAll(taskNotTaken);
+        all.sort(Comparator.comparingInt(t -> t.id));
+        if (all.size() > Long.SIZE) {
+            throw new IllegalArgumentException("cannot plan more than " + Long.SIZE + " tasks at once, got " + all.size());
+        }
+        this.tasks = all.toArray(new Task[0]);
+        this.universe = taskNotTaken;
+    }
+
+    public int size() {
+        return tasks.length;
+    }
+
+    public Task task(int bit) {
+        return tasks[bit];
+    }
+
+    public long maskOf(TaskSet taskSet) {
+        long mask = 0L;
+        for (int bit = 0; bit < tasks.length; bit++) {
+            if (taskSet.contains(tasks[bit])) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    public TaskSet toTaskSet(long mask) {
+        TaskSet taskSet = TaskSet.noneOf(universe);
+        for (long m = mask; m != 0; m &= m - 1) {
+            taskSet.add(tasks[Long.numberOfTrailingZeros(m)]);
+        }
+        return taskSet;
+    }
+}
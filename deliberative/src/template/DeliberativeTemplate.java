@@ -14,7 +14,7 @@ import logist.task.TaskDistribution;
 import logist.task.TaskSet;
 import logist.topology.Topology;
 import logist.topology.Topology.City;
-import models.State;
+import models.DistanceTable;
 import models.StateRepresentation;
 
 /**
@@ -37,6 +37,7 @@ public class DeliberativeTemplate implements DeliberativeBehavior {
         this.topology = topology;
         this.td = td;
         this.agent = agent;
+        DistanceTable.init(topology);
 
         // initialize the planner
         String algorithmName = agent.readProperty("algorithm", String.class, "NAIVE").toUpperCase();
@@ -54,7 +55,6 @@ public class DeliberativeTemplate implements DeliberativeBehavior {
     @Override
     public Plan plan(Vehicle vehicle, TaskSet tasks) {
         Plan plan;
-        State startingState = new StateRepresentation(vehicle, tasks);
 
         // Compute the plan with the selected algorithm.
         long time = System.currentTimeMillis();
@@ -62,12 +62,12 @@ public class DeliberativeTemplate implements DeliberativeBehavior {
             case ASTAR:
                 // ...
                 System.out.println("ASTAR algorithm (with heuristic " + heuristic + ") starting...");
-                plan = AStar.run(startingState, heuristic);
+                plan = AStar.run(new StateRepresentation(vehicle, tasks), heuristic);
                 break;
             case BFS:
                 // ...
                 System.out.println("BFS algorithm starting...");
-                plan = BFS.run(startingState);
+                plan = BFS.run(new StateRepresentation(vehicle, tasks));
                 break;
             case NAIVE:
                 plan = naivePlan(vehicle, tasks);
@@ -0,0 +1,143 @@
+package models;
+
+import logist.task.TaskDistribution;
+import logist.topology.Topology;
+import logist.topology.Topology.City;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MDP of the reactive agent stored in flat arrays.
+ * <p>
+ * A state is a city and the destination of the task available there (or none), its index is
+ * city.id * (numCities + 1) + destination.id, with numCities standing for "no task". So the states reached by moving to
+ * a city are the contiguous block of that city, and T(s, a, s') is simply the probability of s' in that block.
+ * The actions of a state are the cities it can move to (its neighbors and the destination of its task), stored
+ * between actionStart[s] and actionStart[s + 1].
+ */
+public class ReactiveModel {
+
+    private final int numCities;
+    private final int numStates;
+    private final City[] cities;
+
+    private final boolean[] valid; // (city, city) does not exist, it is (city, no task)
+    private final double[] probabilities; // probability of a state once we are in its city
+    private final int[] actionStart;
+    private final int[] actionTargets; // city id
+    private final double[] actionRewards; // R(s, a)
+
+    public ReactiveModel(Topology topology, TaskDistribution td, double costPerKm) {
+        DistanceTable distances = DistanceTable.init(topology);
+        this.numCities = distances.numCities();
+        this.numStates = numCities * (numCities + 1);
+        this.cities = new City[numCities];
+        this.valid = new boolean[numStates];
+        this.probabilities = new double[numStates];
+        this.actionStart = new int[numStates + 1];
+
+        List<Integer> targets = new ArrayList<>();
+        List<Double> rewards = new ArrayList<>();
+
+        for (int c = 0; c < numCities; c++) {
+            cities[c] = distances.city(c);
+        }
+        for (int s = 0; s < numStates; s++) {
+            actionStart[s] = targets.size();
+            City city = cityOf(s);
+            City destination = destinationOf(s);
+            if (destination == city) {
+                continue;
+            }
+            valid[s] = true;
+            probabilities[s] = td.probability(city, destination);
+
+            for (City neighbor : city.neighbors()) {
+                if (neighbor != destination) {
+                    targets.add(neighbor.id);
+                    rewards.add(-distances.distance(city, neighbor) * costPerKm);
+                }
+            }
+            if (destination != null) { // delivering the task (moving to a neighbor which is the destination included)
+                targets.add(destination.id);
+                rewards.add(td.reward(city, destination) - distances.distance(city, destination) * costPerKm);
+            }
+        }
+        actionStart[numStates] = targets.size();
+
+        this.actionTargets = targets.stream().mapToInt(Integer::intValue).toArray();
+        this.actionRewards = rewards.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    public int numCities() {
+        return numCities;
+    }
+
+    public int numStates() {
+        return numStates;
+    }
+
+    public int index(City city, City destination) {
+        return city.id * (numCities + 1) + (destination == null || destination == city ? numCities : destination.id);
+    }
+
+    public City cityOf(int state) {
+        return cities[state / (numCities + 1)];
+    }
+
+    /**
+     * Destination of the task of the state, null if there is none
+     */
+    public City destinationOf(int state) {
+        int destination = state % (numCities + 1);
+        return destination == numCities ? null : cities[destination];
+    }
+
+    public City city(int id) {
+        return cities[id];
+    }
+
+    public boolean isValid(int state) {
+        return valid[state];
+    }
+
+    /**
+     * First state of the block reached by moving to the city, the block has numCities + 1 states
+     */
+    public int firstStateIn(int city) {
+        return city * (numCities + 1);
+    }
+
+    public double probability(int state) {
+        return probabilities[state];
+    }
+
+    public int actionStart(int state) {
+        return actionStart[state];
+    }
+
+    public int actionEnd(int state) {
+        return actionStart[state + 1];
+    }
+
+    public int actionTarget(int action) {
+        return actionTargets[action];
+    }
+
+    public double actionReward(int action) {
+        return actionRewards[action];
+    }
+
+    /**
+     * sum_{s'} T(s, a, s') * V(s') for every action moving to the city
+     */
+    public double expectedValue(int city, double[] values) {
+        int first = firstStateIn(city);
+        double expected = 0;
+        for (int s = first; s <= first + numCities; s++) {
+            expected += probabilities[s] * values[s];
+        }
+        return expected;
+    }
+}
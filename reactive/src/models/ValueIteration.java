@@ -0,0 +1,308 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Value iteration on a ReactiveModel, V(s) = max(0, max_a Q(s, a)).
+ * <p>
+ * Three ways of ordering the backups:
+ * - JACOBI: every sweep computes the new values from the values of the previous sweep only, so the states can be
+ * split among numWorkers threads.
+ * - GAUSS_SEIDEL: one thread, each backup uses the values already updated during the sweep (fewer sweeps).
+ * - PRIORITISED: backups in decreasing order of (a bound on) the Bellman error, which is raised for the states that
+ * can move to a state whose value changed. It does not do the useless backups of already converged states.
+ */
+public class ValueIteration {
+
+    public enum Mode {
+        JACOBI, GAUSS_SEIDEL, PRIORITISED;
+
+        /**
+         * Mode from its name in agents.xml, e.g. "gauss-seidel"
+         */
+        public static Mode parse(String name) {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final ReactiveModel model;
+    private final double discount;
+    private final double threshold;
+    private final boolean verbose; // report every sweep
+    private double[] values;
+    private final int[] bestTargets; // city to move to, indexed by state
+
+    public ValueIteration(ReactiveModel model, double discount, double threshold, boolean verbose) {
+        this.model = model;
+        this.discount = discount;
+        this.threshold = threshold;
+        this.verbose = verbose;
+        this.values = new double[model.numStates()];
+        this.bestTargets = new int[model.numStates()];
+    }
+
+    public void solve(Mode mode, int numWorkers) {
+        long startTime = System.nanoTime();
+        switch (mode) {
+            case JACOBI:
+                solveJacobi(numWorkers);
+                break;
+            case GAUSS_SEIDEL:
+                solveGaussSeidel();
+                break;
+            case PRIORITISED:
+                solvePrioritised();
+                break;
+        }
+        System.out.println("[VI] " + mode + " converged in " + millisSince(startTime) + "ms");
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public int[] getBestTargets() {
+        return bestTargets;
+    }
+
+    /**
+     * max_a Q(s, a) computed from the given values, the best action is recorded even when every action loses money
+     * (the vehicle has to do something)
+     */
+    private double bestQ(int state, double[] v) {
+        double bestQ = Double.NEGATIVE_INFINITY;
+        int bestTarget = -1;
+        for (int action = model.actionStart(state); action < model.actionEnd(state); action++) {
+            int target = model.actionTarget(action);
+            double q = model.actionReward(action) + discount * model.expectedValue(target, v);
+            if (q >= bestQ) {
+                bestTarget = target;
+                bestQ = q;
+            }
+        }
+        bestTargets[state] = bestTarget;
+        return bestQ;
+    }
+
+    private void solveGaussSeidel() {
+        double maxImprovement = Double.POSITIVE_INFINITY;
+        for (int sweep = 1; maxImprovement > threshold; sweep++) {
+            long startTime = System.nanoTime();
+            maxImprovement = 0;
+            for (int state = 0; state < model.numStates(); state++) {
+                if (model.isValid(state)) {
+                    double q = bestQ(state, values);
+                    if (q > values[state]) {
+                        maxImprovement = Math.max(maxImprovement, q - values[state]);
+                        values[state] = q;
+                    }
+                }
+            }
+            printSweep(Mode.GAUSS_SEIDEL, sweep, maxImprovement, startTime);
+        }
+    }
+
+    private void solveJacobi(int numWorkers) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, numWorkers));
+        int chunk = (model.numStates() + pool.getParallelism() - 1) / pool.getParallelism();
+        double[] next = new double[model.numStates()];
+        try {
+            double maxImprovement = Double.POSITIVE_INFINITY;
+            for (int sweep = 1; maxImprovement > threshold; sweep++) {
+                long startTime = System.nanoTime();
+                double[] current = values;
+                double[] updated = next;
+
+                List<Callable<Double>> partitions = new ArrayList<>();
+                for (int from = 0; from < model.numStates(); from += chunk) {
+                    int first = from;
+                    int last = Math.min(from + chunk, model.numStates());
+                    partitions.add(() -> sweepJacobi(first, last, current, updated));
+                }
+                maxImprovement = 0;
+                for (Future<Double> partition : pool.invokeAll(partitions)) {
+                    maxImprovement = Math.max(maxImprovement, partition.get());
+                }
+
+                next = current;
+                values = updated;
+                printSweep(Mode.JACOBI, sweep, maxImprovement, startTime);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("value iteration failed", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private double sweepJacobi(int first, int last, double[] current, double[] updated) {
+        double maxImprovement = 0;
+        for (int state = first; state < last; state++) {
+            updated[state] = current[state];
+            if (model.isValid(state)) {
+                double q = bestQ(state, current);
+                if (q > current[state]) {
+                    maxImprovement = Math.max(maxImprovement, q - current[state]);
+                    updated[state] = q;
+                }
+            }
+        }
+        return maxImprovement;
+    }
+
+    private void solvePrioritised() {
+        int numCities = model.numCities();
+        int numStates = model.numStates();
+
+        // states having an action to the city, between predecessorStart[city] and predecessorStart[city + 1]
+        int[] predecessorStart = new int[numCities + 1];
+        for (int action = 0; action < model.actionStart(numStates); action++) {
+            predecessorStart[model.actionTarget(action) + 1] += 1;
+        }
+        for (int city = 0; city < numCities; city++) {
+            predecessorStart[city + 1] += predecessorStart[city];
+        }
+        int[] predecessors = new int[predecessorStart[numCities]];
+        int[] filled = predecessorStart.clone();
+        for (int state = 0; state < numStates; state++) {
+            for (int action = model.actionStart(state); action < model.actionEnd(state); action++) {
+                predecessors[filled[model.actionTarget(action)]++] = state;
+            }
+        }
+
+        StateHeap queue = new StateHeap(numStates);
+        for (int state = 0; state < numStates; state++) {
+            if (model.isValid(state)) {
+                queue.raise(state, Math.max(0, bestQ(state, values) - values[state]), threshold);
+            }
+        }
+
+        int backups = 0;
+        int sweep = 1;
+        double maxImprovement = 0;
+        long startTime = System.nanoTime();
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            double q = bestQ(state, values);
+            if (q > values[state]) {
+                double improvement = q - values[state];
+                maxImprovement = Math.max(maxImprovement, improvement);
+                values[state] = q;
+
+                // Q(p, a) of an action a moving to this city grows by exactly discount * T(p, a, state) * improvement
+                double increase = discount * model.probability(state) * improvement;
+                int city = state / (numCities + 1);
+                for (int i = predecessorStart[city]; i < predecessorStart[city + 1]; i++) {
+                    queue.raise(predecessors[i], increase, threshold);
+                }
+            }
+
+            backups += 1;
+            if (backups % numStates == 0 || queue.isEmpty()) { // report as many backups as a sweep does
+                printSweep(Mode.PRIORITISED, sweep++, maxImprovement, startTime);
+                maxImprovement = 0;
+                startTime = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Max-heap of states on a bound of their Bellman error, with the position of every state so that raising the
+     * error of a queued state does not add an entry
+     */
+    private static class StateHeap {
+        private final double[] errors;
+        private final int[] heap;
+        private final int[] positions; // -1 when the state is not queued
+        private int size = 0;
+
+        private StateHeap(int numStates) {
+            this.errors = new double[numStates];
+            this.heap = new int[numStates];
+            this.positions = new int[numStates];
+            Arrays.fill(positions, -1);
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Add increase to the error bound of the state, it is queued once the bound is above the threshold
+         */
+        private void raise(int state, double increase, double threshold) {
+            errors[state] += increase;
+            if (positions[state] >= 0) {
+                siftUp(positions[state]);
+            } else if (errors[state] > threshold) {
+                heap[size] = state;
+                positions[state] = size;
+                siftUp(size++);
+            }
+        }
+
+        private int poll() {
+            int top = heap[0];
+            positions[top] = -1;
+            errors[top] = 0;
+            size -= 1;
+            if (size > 0) {
+                heap[0] = heap[size];
+                positions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int state = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (errors[heap[parent]] >= errors[state]) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                positions[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = state;
+            positions[state] = i;
+        }
+
+        private void siftDown(int i) {
+            int state = heap[i];
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && errors[heap[child + 1]] > errors[heap[child]]) {
+                    child += 1;
+                }
+                if (errors[heap[child]] <= errors[state]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                positions[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = state;
+            positions[state] = i;
+        }
+    }
+
+    private void printSweep(Mode mode, int sweep, double maxImprovement, long startTime) {
+        if (verbose) {
+            System.out.println("[VI] " + mode + " sweep " + sweep + ": max improvement = " + maxImprovement + ", "
+                    + millisSince(startTime) + "ms");
+        }
+    }
+
+    private static double millisSince(long startTime) {
+        return (System.nanoTime() - startTime) / 1e6;
+    }
+}